@@ -0,0 +1,120 @@
+import java.io.*;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the assignment folder for test cases that are added or changed
+ * while grading, like a typo fixed in "TestCase3Result.out" or a new
+ * "TestCase13", so the results that depend on them can be run again.
+ *
+ * Events only say that something in the folder may have changed. Once
+ * nothing happened for SETTLE_TIME_MS, every test case is hashed with
+ * DependencyTracker and compared with the hashes from before: a test case
+ * changed if its file, its result files or the data files it names did.
+ * If a file that matters to every test case changed, like provided source
+ * code, they all did. The listener is called on the watcher's thread.
+ */
+class AssignmentWatcher {
+    private static final long SETTLE_TIME_MS = 1000;
+
+    // The key of the hash of the files of the program, no test case has an empty name.
+    private static final String PROGRAM_KEY = "";
+
+    interface Listener {
+        // The test cases that were added or changed, in the order of their names.
+        void testCasesChanged(List<String> testCaseNames);
+    }
+
+    private final File assignmentFolder;
+    private final Listener listener;
+    private final WatchService service;
+
+    // The hashes of the program and of every test case, only used by the watcher's thread.
+    private Map<String, String> hashes;
+
+    AssignmentWatcher(File assignmentFolder, Listener listener) throws IOException {
+        this.assignmentFolder = assignmentFolder;
+        this.listener = listener;
+        hashes = hashTestCases();
+        if (hashes == null)
+            throw new IOException("Cannot read the test cases in " + assignmentFolder);
+
+        service = FileSystems.getDefault().newWatchService();
+        assignmentFolder.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                watch();
+            }
+        }, "AssignmentWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Stop watching, for example when another folder is opened.
+    void close() {
+        try {
+            service.close();
+        } catch (IOException e) {}
+    }
+
+    private void watch() {
+        boolean bTouched = false;
+        try {
+            while (true) {
+                // Wait for the first event, then until the events stop.
+                WatchKey key = bTouched ? service.poll(SETTLE_TIME_MS, TimeUnit.MILLISECONDS) : service.take();
+                if (key == null) {
+                    report();
+                    bTouched = false;
+                    continue;
+                }
+                key.pollEvents();
+                key.reset();
+                bTouched = true;
+            }
+        } catch (InterruptedException e) {
+        } catch (ClosedWatchServiceException e) {
+        }
+    }
+
+    // Tell the listener which test cases are not the same as before.
+    private void report() {
+        Map<String, String> now = hashTestCases();
+        if (now == null)
+            return; // A file is still being written, try again with the next event.
+
+        boolean bAll = !now.get(PROGRAM_KEY).equals(hashes.get(PROGRAM_KEY));
+        List<String> changed = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : now.entrySet())
+            if (!entry.getKey().equals(PROGRAM_KEY) && (bAll || !entry.getValue().equals(hashes.get(entry.getKey()))))
+                changed.add(entry.getKey());
+        hashes = now;
+
+        if (!changed.isEmpty())
+            listener.testCasesChanged(changed);
+    }
+
+    // The hashes by test case, null if a file cannot be read.
+    private Map<String, String> hashTestCases() {
+        DependencyTracker tracker = DependencyTracker.get(assignmentFolder);
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        try {
+            map.put(PROGRAM_KEY, tracker.hashProgramFiles());
+            for (String name : tracker.getTestCaseNames())
+                map.put(name, tracker.hashTestCase(name) + " " + tracker.hashResultFiles(name));
+        } catch (IOException e) {
+            return null;
+        }
+        return map;
+    }
+}
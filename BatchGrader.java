@@ -0,0 +1,301 @@
+import java.io.*;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Grades all the submissions of an assignment without the GUI.
+ *
+ * To run it from the folder where GradingTool is:
+ *
+ * "java GradingTool -batch CSCI-1620-5-S15-A2 8"
+ *
+ * The first argument is the folder that contains submissions for an
+ * assignment, the same folder you would open in the GUI. The second one is
+ * optional, it is the number of workers, the default is the number of
+ * processors. Because CodeTester spends most of its time waiting between
+ * input lines, more workers than processors usually pays off.
+ *
+ * Every student is compiled in a build folder of their own, and every test
+ * case runs in its own copy of that folder, so all the test cases of all
+ * the students share the workers. The compile log and the output of every
+ * test case are written to "batch-result.txt" in the student's folder, and
+ * a summary of all the students is written next to the submission folder,
+ * for example "CSCI-1620-5-S15-A2-summary.txt".
+ *
+ * Test results are kept in a ResultStore, so running the batch again only
+ * runs the test cases whose program, test case or result files changed,
+ * for example one column after a typo in "TestCase3Result" was fixed. The
+ * summary lists the test runs whose verdict changed.
+ */
+class BatchGrader {
+    static final String FILE_NAME_BATCH_RESULT = "batch-result.txt";
+    static final String FILE_NAME_SUMMARY_SUFFIX = "-summary.txt";
+
+    private static final String TEMP_FOLDER_NAME = "Temp";
+    private static final String NEW_LINE = "\n";
+
+    private final File submissionFolder;
+    private final int workerCount;
+
+    private int courseID;
+    private int assignmentNum;
+    private Language language;
+
+    private WorkspaceManager workspaces;
+    private ResultStore store;
+    private JavaWorkerPool workers;
+    private ExecutorService executor;
+
+    // The result of grading one student.
+    private static class StudentResult {
+        String name;
+        boolean compiled;
+        SubmissionTester tester;
+        StringBuilder compileLog = new StringBuilder();
+        String[] testLogs;
+        TestResult.Verdict[] verdicts;
+        TestResult.Verdict[] previousVerdicts;
+        boolean[] rerun;
+        List<Future<?>> testFutures = new ArrayList<Future<?>>();
+    }
+
+    BatchGrader(File submissionFolder, int workerCount) {
+        this.submissionFolder = submissionFolder;
+        this.workerCount = workerCount;
+    }
+
+    static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java GradingTool -batch <submission folder> [number of workers]");
+            return;
+        }
+
+        int workerCount = Runtime.getRuntime().availableProcessors();
+        if (args.length > 1)
+            workerCount = Integer.parseInt(args[1]);
+
+        BatchGrader grader = new BatchGrader(new File(args[0]), workerCount);
+        if (!grader.run())
+            System.exit(1);
+    }
+
+    /**
+     * Grade all the students.
+     *
+     * @return false if the assignment cannot be recognized from the folder name.
+     */
+    boolean run() {
+        String folderName = submissionFolder.getName();
+        courseID = SubmissionTester.parseCourseID(folderName);
+        assignmentNum = SubmissionTester.parseAssignmentNumber(folderName);
+        language = SubmissionTester.getLanguage(courseID);
+        if (courseID < 0 || assignmentNum < 0 || language == null) {
+            System.out.println("Cannot find a known course and assignment number in folder name: " + folderName);
+            return false;
+        }
+
+        File[] students = submissionFolder.listFiles(new FileFilter() {
+            public boolean accept(File f) {
+                return f.isDirectory();
+            }
+        });
+        if (students == null) {
+            System.out.println("Cannot open folder: " + submissionFolder.getAbsolutePath());
+            return false;
+        }
+        Arrays.sort(students);
+
+        workspaces = new WorkspaceManager(new File(TEMP_FOLDER_NAME));
+        workers = new JavaWorkerPool(new File(SubmissionTester.CODE_TESTER_ACCURATE_FOLDER_NAME), workerCount);
+        executor = Executors.newFixedThreadPool(workerCount);
+        SubmissionTester assignmentTester = createTester(null, new StringBuilder());
+        File[] testCases = assignmentTester.listTestCases();
+        store = assignmentTester.createResultStore();
+        System.out.println("Grading " + students.length + " students with " + testCases.length
+            + " test cases using " + workerCount + " workers.");
+
+        // Compile everybody. A student's test cases are queued as soon as they are compiled.
+        long startTime = System.currentTimeMillis();
+        List<Future<StudentResult>> futures = new ArrayList<Future<StudentResult>>();
+        for (final File student : students) {
+            futures.add(executor.submit(new Callable<StudentResult>() {
+                public StudentResult call() {
+                    return compile(student);
+                }
+            }));
+        }
+
+        List<StudentResult> results = new ArrayList<StudentResult>();
+        for (int i = 0; i < futures.size(); i++) {
+            StudentResult result;
+            try {
+                result = futures.get(i).get();
+                for (Future<?> future : result.testFutures)
+                    future.get();
+            } catch (Exception e) {
+                result = new StudentResult();
+                result.name = students[i].getName();
+                result.verdicts = new TestResult.Verdict[0];
+                System.out.println(result.name + ": " + e);
+            }
+
+            if (result.tester != null) {
+                writeStudentResult(students[i], result);
+                result.tester.release();
+            }
+            System.out.println("Graded: " + result.name);
+            results.add(result);
+        }
+        executor.shutdown();
+        workers.shutdown();
+        workspaces.shutdown();
+
+        String summary = formatSummary(testCases, results);
+        System.out.print(summary);
+        FileUtil.writeFile(new File(submissionFolder.getAbsoluteFile().getParentFile(), folderName + FILE_NAME_SUMMARY_SUFFIX).getPath(), summary);
+        System.out.println("Done in " + (System.currentTimeMillis() - startTime) / 1000 + " seconds.");
+        return true;
+    }
+
+    private SubmissionTester createTester(String student, final StringBuilder log) {
+        return new SubmissionTester(courseID, assignmentNum, language, workspaces, workers, student, toLog(log));
+    }
+
+    private static SubmissionTester.Log toLog(final StringBuilder log) {
+        return new SubmissionTester.Log() {
+            public void log(String line) {
+                log.append(line).append(NEW_LINE);
+            }
+        };
+    }
+
+    // Compile one student and queue all the test cases.
+    private StudentResult compile(File student) {
+        final StudentResult result = new StudentResult();
+        result.name = student.getName();
+        result.tester = createTester(student.getName(), result.compileLog);
+
+        File[] testCases = result.tester.listTestCases();
+        result.verdicts = new TestResult.Verdict[testCases.length];
+        result.previousVerdicts = new TestResult.Verdict[testCases.length];
+        result.rerun = new boolean[testCases.length];
+        result.testLogs = new String[testCases.length];
+        result.compiled = result.tester.compile(result.tester.listSourceFiles(student));
+
+        if (!result.compiled) {
+            result.compileLog.append(NEW_LINE + "*** Failed to compile ***" + NEW_LINE);
+            return result;
+        }
+
+        for (int i = 0; i < testCases.length; i++) {
+            final int index = i;
+            final String testCaseName = testCases[i].getName();
+            result.testFutures.add(executor.submit(new Runnable() {
+                public void run() {
+                    runTest(result, index, testCaseName);
+                }
+            }));
+        }
+        return result;
+    }
+
+    // Run one test case of a compiled student.
+    private void runTest(StudentResult result, int index, String testCaseName) {
+        StringBuilder log = new StringBuilder();
+        log.append(NEW_LINE + "########## " + testCaseName + " ##########" + NEW_LINE);
+
+        // Whatever was stored before, even if it is out of date now.
+        ResultStore.Entry previous = store.load(result.name, testCaseName);
+        if (previous != null)
+            result.previousVerdicts[index] = previous.result.getVerdict();
+
+        TestResult testResult = result.tester.withLog(toLog(log)).runTest(testCaseName);
+        if (testResult == null) {
+            log.append("Test run unsuccessful." + NEW_LINE);
+            result.verdicts[index] = TestResult.Verdict.Error;
+            result.rerun[index] = true;
+        }
+        else {
+            for (String line : testResult.getLines())
+                log.append(line).append(NEW_LINE);
+            result.verdicts[index] = testResult.getVerdict();
+            result.rerun[index] = !testResult.isStored();
+        }
+        result.testLogs[index] = log.toString();
+    }
+
+    private void writeStudentResult(File student, StudentResult result) {
+        StringBuilder sb = new StringBuilder(result.compileLog);
+        for (String testLog : result.testLogs)
+            if (testLog != null)
+                sb.append(testLog);
+        FileUtil.writeFile(new File(student, FILE_NAME_BATCH_RESULT).getPath(), sb.toString());
+    }
+
+    // Passed is "P", failed is "F", not compared is "-" and error is "E".
+    // A program stopped for going over the time, CPU or output limit is "T", "C" or "O".
+    private static String formatVerdict(TestResult.Verdict verdict) {
+        if (verdict == null)
+            return " ";
+        else if (verdict == TestResult.Verdict.Passed)
+            return "P";
+        else if (verdict == TestResult.Verdict.Failed)
+            return "F";
+        else if (verdict == TestResult.Verdict.NotCompared)
+            return "-";
+        else if (verdict == TestResult.Verdict.TimeLimit)
+            return "T";
+        else if (verdict == TestResult.Verdict.CpuLimit)
+            return "C";
+        else if (verdict == TestResult.Verdict.OutputLimit)
+            return "O";
+        else
+            return "E";
+    }
+
+    // One line per student, then what changed since the last run.
+    private String formatSummary(File[] testCases, List<StudentResult> results) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Student\tCompiled");
+        for (File f : testCases)
+            sb.append("\t").append(f.getName());
+        sb.append(NEW_LINE);
+
+        for (StudentResult result : results) {
+            sb.append(result.name).append("\t").append(result.compiled ? "Yes" : "No");
+            for (TestResult.Verdict verdict : result.verdicts)
+                sb.append("\t").append(formatVerdict(verdict));
+            sb.append(NEW_LINE);
+        }
+
+        // What was run again, and what came out differently.
+        int rerunCount = 0;
+        int keptCount = 0;
+        StringBuilder changes = new StringBuilder();
+        for (StudentResult result : results) {
+            if (result.rerun == null)
+                continue;
+            for (int i = 0; i < result.rerun.length; i++) {
+                if (result.verdicts[i] == null)
+                    continue;
+                if (!result.rerun[i]) {
+                    keptCount++;
+                    continue;
+                }
+                rerunCount++;
+                if (result.previousVerdicts[i] != null && result.previousVerdicts[i] != result.verdicts[i])
+                    changes.append(result.name + "\t" + testCases[i].getName() + "\t"
+                        + formatVerdict(result.previousVerdicts[i]) + " -> " + formatVerdict(result.verdicts[i]) + NEW_LINE);
+            }
+        }
+        sb.append(NEW_LINE + "Ran " + rerunCount + " test cases, kept " + keptCount + " results of earlier runs." + NEW_LINE);
+        if (changes.length() > 0)
+            sb.append("Changed verdicts:" + NEW_LINE).append(changes);
+        return sb.toString();
+    }
+}
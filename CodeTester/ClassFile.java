@@ -0,0 +1,160 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the constant pool of a compiled class, which lists every class,
+ * field and method the class uses.
+ *
+ * JavaRunWorker uses it to send the calls to System.exit() of the program
+ * being tested to a method of its own, and GradingTool uses it to find
+ * programs that cannot be run by a worker, like GUI programs. GradingTool
+ * is compiled with this file, too ("javac -d . *.java CodeTester/ClassFile.java
+ * CodeTester/LineDiff.java").
+ */
+class ClassFile {
+    private static final int UTF8 = 1;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int METHOD_REF = 10;
+    private static final int INTERFACE_METHOD_REF = 11;
+    private static final int NAME_AND_TYPE = 12;
+
+    // The length of an entry after its tag, for the tags above 2.
+    private static final int[] ENTRY_LENGTHS = {
+        -1, -1, -1, 4, 4, 8, 8, 2, 2, 4, 4, 4, 4, -1, -1, 3, 2, 4, 4, 2, 2
+    };
+
+    private final byte[] bytes;
+    private final int count;       // constant_pool_count, entry 0 is not used
+    private final int poolEnd;     // The offset of the first byte after the pool
+    private final int[] offsets;   // The offset of the tag of every entry
+    private final String[] utf8;   // The text of the Utf8 entries
+
+    /**
+     * @throws IOException if the bytes are not a class file.
+     */
+    ClassFile(byte[] bytes) throws IOException {
+        this.bytes = bytes;
+        if (bytes.length < 10 || readInt(0) != 0xCAFEBABE)
+            throw new IOException("Not a class file");
+
+        count = readShort(8);
+        offsets = new int[count];
+        utf8 = new String[count];
+        int position = 10;
+        try {
+            for (int i = 1; i < count; i++) {
+                offsets[i] = position;
+                int tag = bytes[position] & 0xff;
+                if (tag == UTF8) {
+                    int length = readShort(position + 1);
+                    utf8[i] = new String(bytes, position + 3, length, StandardCharsets.UTF_8);
+                    position += 3 + length;
+                }
+                else if (tag < ENTRY_LENGTHS.length && ENTRY_LENGTHS[tag] > 0) {
+                    position += 1 + ENTRY_LENGTHS[tag];
+                    // The two big number types take two entries.
+                    if (tag == LONG || tag == DOUBLE)
+                        i++;
+                }
+                else {
+                    throw new IOException("Unknown constant pool tag " + tag);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("The class file is cut short");
+        }
+        poolEnd = position;
+    }
+
+    /**
+     * The names of the classes the class uses, including its super class,
+     * like "java/lang/Thread". Array types start with "[".
+     */
+    List<String> getClassNames() {
+        List<String> names = new ArrayList<String>();
+        for (int i = 1; i < count; i++)
+            if (getTag(i) == CLASS)
+                names.add(utf8[readShort(offsets[i] + 1)]);
+        return names;
+    }
+
+    /**
+     * The methods the class calls, each as its class, name and descriptor,
+     * like "java/io/PrintWriter", "<init>" and "(Ljava/lang/String;)V".
+     */
+    List<String[]> getMethodRefs() {
+        List<String[]> refs = new ArrayList<String[]>();
+        for (int i = 1; i < count; i++)
+            if (getTag(i) == METHOD_REF || getTag(i) == INTERFACE_METHOD_REF)
+                refs.add(getMethodRef(i));
+        return refs;
+    }
+
+    /**
+     * The class with every call of a static method sent to a method of
+     * the same name and descriptor in another class.
+     *
+     * @return The bytes of the changed class, or the same bytes if it never calls the method.
+     */
+    byte[] redirectStaticMethod(String className, String name, String descriptor, String newClassName) throws IOException {
+        List<Integer> refs = new ArrayList<Integer>();
+        for (int i = 1; i < count; i++) {
+            if (getTag(i) != METHOD_REF)
+                continue;
+            String[] ref = getMethodRef(i);
+            if (ref[0].equals(className) && ref[1].equals(name) && ref[2].equals(descriptor))
+                refs.add(i);
+        }
+        if (refs.isEmpty())
+            return bytes;
+
+        // Add the new class at the end of the pool, and point the calls to it.
+        int nameIndex = count;
+        int classIndex = count + 1;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length + newClassName.length() + 8);
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(bytes, 0, 8);
+        data.writeShort(count + 2);
+        data.write(bytes, 10, poolEnd - 10);
+        data.writeByte(UTF8);
+        data.writeUTF(newClassName);
+        data.writeByte(CLASS);
+        data.writeShort(nameIndex);
+        data.write(bytes, poolEnd, bytes.length - poolEnd);
+
+        byte[] changed = out.toByteArray();
+        for (int i : refs) {
+            changed[offsets[i] + 1] = (byte)(classIndex >> 8);
+            changed[offsets[i] + 2] = (byte)classIndex;
+        }
+        return changed;
+    }
+
+    private String[] getMethodRef(int i) {
+        int classIndex = readShort(offsets[i] + 1);
+        int natIndex = readShort(offsets[i] + 3);
+        String owner = utf8[readShort(offsets[classIndex] + 1)];
+        String name = utf8[readShort(offsets[natIndex] + 1)];
+        String descriptor = utf8[readShort(offsets[natIndex] + 3)];
+        return new String[] { owner, name, descriptor };
+    }
+
+    // 0 for the unused second entry of a long or a double.
+    private int getTag(int i) {
+        return offsets[i] == 0 ? 0 : bytes[offsets[i]] & 0xff;
+    }
+
+    private int readShort(int position) {
+        return ((bytes[position] & 0xff) << 8) | (bytes[position + 1] & 0xff);
+    }
+
+    private int readInt(int position) {
+        return (readShort(position) << 16) | readShort(position + 2);
+    }
+}
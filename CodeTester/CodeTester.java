@@ -1,4 +1,71 @@
 /*
+---------------
+2026-10-18
+agent
+
+The result file is compared with a diff (LineDiff.java) instead of line
+by line, so a missing or extra line is reported once instead of making
+every line after it a mismatch. Every block of different lines is
+reported, not only the first one. Line numbers now start from 1.
+
+---------------
+2026-10-18
+agent
+
+The agent, proc and expect modes print the output while the program
+runs, like the timestamp mode already did: the output before an input
+line as soon as the line is fed, and after the last input line, every
+complete line as it comes. GradingTool compares the lines as they come
+and stops a program whose output has clearly gone wrong.
+
+---------------
+2026-10-18
+agent
+
+Add expect mode:
+
+"java CodeTester TestCase0 -expect"
+
+When the result file exists, we already know which prompt comes
+before each input line. In this mode the output is watched while the
+program runs, and the next input line is fed as soon as the output
+ends with its prompt. If the prompt does not show up within the input
+delay, the line is fed anyway. The input lines are inserted where
+they were fed, so no timestamps are needed.
+
+---------------
+2026-10-18
+agent
+
+Add proc mode for C programs on Linux:
+
+"java CodeTester TestCase0 -proc"
+
+We watch the state of the program through /proc/<pid>/stat,
+/proc/<pid>/wchan and /proc/<pid>/syscall. When it is blocked in a
+read() from stdin and all its output has been collected, the next
+input line is fed and inserted at the current end of the output.
+The program is launched through "stdbuf -o0" when available, so that
+prompts are not held back in the stdout buffer.
+
+---------------
+2026-10-18
+agent
+
+Add agent mode for Java programs:
+
+"java CodeTester TestCase0 -agent"
+
+The program being tested is launched with StdinAgent as a Java agent.
+The agent tells us whenever the program is about to wait for input,
+along with how many bytes it has written so far. We feed the next
+input line right away, and insert it into the collected output at
+exactly that position. There is no delay after each input line, and
+the timestamps are not needed to assemble the output.
+
+Because an input line is only sent when the program asks for one,
+the program may also use more than one Scanner in this mode.
+
 ---------------
 2016-01-27
 Mai Ren
@@ -68,32 +135,31 @@ a given output, the you can directly create a result
 file from the given output.
 
 The program being tested must only have one scanner 
-instance.
+instance, unless agent mode is used.
 */
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-
-class Line {
-    public Date timestamp;
-    public String text;
-    
-    public Line(Date timestamp, String text) {
-        this.timestamp = timestamp;
-        this.text = text;
-    }
-}
 
 public class CodeTester {
     public enum Language {Java, C};
@@ -103,16 +169,28 @@ public class CodeTester {
     private static String _testResultFile;
     
     private static Language _language;
+    private static ResultComparer _comparer;
+    
+    // Set to true to write the output to the result file when there is none yet.
+    private static final boolean _CREATE_RESULT_FILE = false;
     
-    private static int Input_Delay = 500; // In million seconds
+    private static volatile int Input_Delay = 500; // In million seconds
+    
+    private static final String AGENT_CLASS_NAME = "StdinAgent";
+    private static final String AGENT_JAR_NAME = "StdinAgent.jar";
+    private static final int AGENT_CONNECT_TIMEOUT = 10000; // In milliseconds
+    private static final String STDBUF_PATH = "/usr/bin/stdbuf";
     
     public static void main(String[] args) throws IOException {
         // Read test case
         _testCaseFile = args[0];
+        boolean bAgent = args.length > 1 && args[1].equals("-agent");
+        boolean bProc = args.length > 1 && args[1].equals("-proc");
+        boolean bExpect = args.length > 1 && args[1].equals("-expect");
         _testResultFile = _testCaseFile + "Result";
+        _comparer = ResultComparer.load(Paths.get(_testResultFile));
         Path path = Paths.get(_testCaseFile);
         List<String> inputLines = null;
-        final ArrayList<Line> inputTimestampedLines = new ArrayList<Line>();
         
         try {
             inputLines = Files.readAllLines(path, _ENCODING);
@@ -134,11 +212,34 @@ public class CodeTester {
                 cmd = "a.exe";
         }
         
+        String arguments = "";
         for (int i = 1; i < sections.length; i++) {
-            cmd += " " + sections[i];
+            arguments += " " + sections[i];
+        }
+        cmd += arguments;
+        
+        if (bAgent && _language == Language.Java) {
+            createAgentJar();
+            AgentWatcher watcher = new AgentWatcher();
+            runOnDemand("java -javaagent:" + AGENT_JAR_NAME + "=" + watcher.getPort() + " " + executableName + arguments, inputLines, watcher);
+            return;
+        }
+        
+        if (bProc && _language == Language.C && ProcWatcher.isSupported()) {
+            String runCmd = cmd;
+            if (Files.exists(Paths.get(STDBUF_PATH)))
+                runCmd = STDBUF_PATH + " -o0 " + cmd;
+            runOnDemand(runCmd, inputLines, new ProcWatcher());
+            return;
+        }
+        
+        if (bExpect && Files.exists(Paths.get(_testResultFile))) {
+            List<String> expectedLines = Files.readAllLines(Paths.get(_testResultFile), _ENCODING);
+            runOnDemand(cmd, inputLines, new ExpectWatcher(expectedLines, getInputLines(inputLines)));
+            return;
         }
         
-        // Launch the program being tested, read and print its output from a separate thread
+        // Launch the program being tested, read its output from a separate thread
         Process process = Runtime.getRuntime().exec(cmd);
 
         Scanner errorScanner = new Scanner(new InputStreamReader(process.getErrorStream()));
@@ -146,61 +247,15 @@ public class CodeTester {
         
         // Refer to this page for this thread:
         // http://stackoverflow.com/questions/7071115/redirecting-standard-input-output-error-streams-with-nets-process-class
-        new Thread(new Runnable() {
-            public void run() {
-                ArrayList<Line> outputTimestampedLines = new ArrayList<Line>();
-                InputStreamReader reader = new InputStreamReader(inStream);
-                try {
-                    int current;
-                    while ((current = reader.read()) >= 0) {
-                        char c = (char)current;
-                        outputTimestampedLines.add(new Line(getTime(), c + ""));
-                        
-                        //String line = "[" + getTimeString() + "] " + c + " " + (int)c;
-                        //System.out.println(line);
-                    }
-                } catch (Exception e) {}
-                
-                String[] output = assembleOutput(outputTimestampedLines, inputTimestampedLines);
-                
-                for (int i = 0; i < output.length; i++) {
-                    System.out.println(output[i]);
-                }
-                
-                CompareResult(output);
-            }
-        }).start();
-
+        // The output is printed line by line while the program runs.
+        final Transcript transcript = newTranscript();
+        OutputCapture capture = new OutputCapture(inStream, Charset.defaultCharset(), new TimestampMerger(transcript));
+        capture.start();
+        
         // Send test case input lines to the program being tested.
         PrintWriter pWriter = new PrintWriter(process.getOutputStream());
         
-        boolean bCommented = false; // true means we are in a comment section.
-        for (int i = 1; i < inputLines.size(); i++) {
-			String line  = inputLines.get(i);
-            
-            // Skip comments
-            if (line.indexOf("//") >= 0) {
-                line = line.substring(0, line.indexOf("//"));
-            }
-            else if (line.indexOf("/*") >= 0) {
-                line = line.substring(0, line.indexOf("/*"));
-                bCommented = true;
-                continue;
-            }
-            else if (line.indexOf("*/") >= 0) {
-                line = line.substring(line.indexOf("*/") + 2);
-                bCommented = false;
-                continue;
-            }
-            else if (bCommented) {
-                continue;
-            }
-                 
-            // Skip empty lines
-            line = line.trim();
-            if (line.length() == 0)
-                continue;
-            
+        for (String line : getInputLines(inputLines)) {
             // We can add an extra pause in the test case file by adding a line like:
             // __pause__ 1000
             // It will cause a pause of 1000ms.
@@ -231,7 +286,7 @@ public class CodeTester {
             
             // We must flush each input immediately, so that the output will be 
             // collected asap and have the most accurate timestamp.
-            inputTimestampedLines.add(new Line(getTime(), line + ""));
+            capture.addInput(line);
             pWriter.println(line);
             pWriter.flush();
         }
@@ -239,109 +294,568 @@ public class CodeTester {
         pWriter.close();
         
         // Add error output
-        while (errorScanner.hasNextLine()) {
-            String line = errorScanner.nextLine();
+        List<String> errorLines = new ArrayList<String>();
+        while (errorScanner.hasNextLine())
+            errorLines.add(errorScanner.nextLine());
+        
+        try {
+            capture.join();
+        } catch (InterruptedException e) {}
+        
+        String[] output = transcript.finish();
+        
+        CompareResult(output);
+        
+        for (String line : errorLines)
             System.err.println(line);
-        }
     }
 
-    // Insert input lines to the correct positions in the output lines. 
-    // The position to insert was determined by timestamp.
-    private static String[] assembleOutput(List<Line> outputLines, List<Line> inputLines) {
-        //ArrayList<String> lines = new ArrayList<String>();
-        String line = "";
-
-        //boolean unprintedLine = false;
-        for (int i = 0; i < outputLines.size(); i++) {
-            line += ((Line)outputLines.get(i)).text;
+    /**
+     * Tells when the program being tested is waiting for input.
+     */
+    interface ReadWatcher {
+        /**
+         * Wait until the program is blocked reading stdin.
+         * 
+         * @return The number of bytes the program has written to stdout before
+         *         that, or -1 if the program has ended.
+         */
+        long awaitRead(Process process, OutputCollector output) throws IOException;
+        
+        void close() throws IOException;
+    }
+    
+    /**
+     * Collects the output of the program as raw bytes on its own thread.
+     */
+    static class OutputCollector extends Thread {
+        private final InputStream inStream;
+        private byte[] bytes = new byte[8192];
+        private int length = 0;
+        
+        OutputCollector(InputStream inStream) {
+            this.inStream = inStream;
+        }
+        
+        public void run() {
+            byte[] buffer = new byte[8192];
+            try {
+                int count;
+                while ((count = inStream.read(buffer)) >= 0) {
+                    synchronized (this) {
+                        if (length + count > bytes.length)
+                            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+                        System.arraycopy(buffer, 0, bytes, length, count);
+                        length += count;
+                    }
+                }
+            } catch (IOException e) {}
+        }
+        
+        synchronized long size() {
+            return length;
+        }
+        
+        synchronized byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+        
+        // The bytes from start to end as text.
+        synchronized String getString(int start, int end) {
+            return new String(bytes, start, end - start, _ENCODING);
+        }
+        
+        // The position after the last line break at or after start, or start if there is none.
+        synchronized int getLineEnd(int start) {
+            for (int i = length - 1; i >= start; i--)
+                if (bytes[i] == '\n')
+                    return i + 1;
+            return start;
+        }
+    }
+    
+    // The agent connects to us and sends a line "READ <bytes written>" before each blocking read.
+    static class AgentWatcher implements ReadWatcher {
+        private final ServerSocket server;
+        private Socket socket;
+        private BufferedReader signals;
+        
+        AgentWatcher() throws IOException {
+            server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            server.setSoTimeout(AGENT_CONNECT_TIMEOUT);
+        }
+        
+        int getPort() {
+            return server.getLocalPort();
+        }
+        
+        public long awaitRead(Process process, OutputCollector output) throws IOException {
+            if (socket == null) {
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    System.out.println("The program did not connect to " + AGENT_CLASS_NAME + ".");
+                    return -1;
+                }
+                socket.setSoTimeout(100);
+                signals = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            }
             
-            // The last line
-            if (i == outputLines.size() - 1) {
-                break;
+            // Give up if the program has ended.
+            String signal = null;
+            while (signal == null) {
+                try {
+                    signal = signals.readLine();
+                    if (signal == null)
+                        return -1;
+                } catch (SocketTimeoutException e) {
+                    if (!process.isAlive())
+                        return -1;
+                }
             }
-
-            // Now we have at least two items in outputLines
-
-            // If time difference is too large, we consider it a line break, and possible
-            // point to insert an input line.
-            Date d1 = ((Line)outputLines.get(i)).timestamp;
-            Date d2 = ((Line)outputLines.get(i + 1)).timestamp;
-            long diff = d2.getTime() - d1.getTime();
-            if (diff > Input_Delay / 2) {
-                // At this point, the first item in inputLines should be inserted here, but 
-                // we need to verify the timestamp first.
-                if (((Line)inputLines.get(0)).timestamp.getTime() <= d1.getTime() ||
-                    ((Line)inputLines.get(0)).timestamp.getTime() > d2.getTime()) {
-                    // Something went wrong.
-                    System.out.println("Cannot match input and output lines.");
-                    System.out.println("The last output line: " + ((Line)outputLines.get(i)).text);
-                    System.out.println("The last input line: " + ((Line)inputLines.get(0)).text);
+            
+            // Wait until we have collected everything written before the read.
+            long position = Long.parseLong(signal.substring(signal.indexOf(" ") + 1).trim());
+            while (output.size() < position && output.isAlive()) {
+                try {
+                    Thread.sleep(1);
+                } catch (Exception e) {}
+            }
+            return position;
+        }
+        
+        public void close() throws IOException {
+            if (socket != null)
+                socket.close();
+            server.close();
+        }
+    }
+    
+    // Polls /proc on Linux to see if the program is blocked in read() from stdin.
+    static class ProcWatcher implements ReadWatcher {
+        private static final int POLL_INTERVAL = 2; // In milliseconds
+        
+        // The number of the read system call: 0 on x86_64, 63 on arm64, 3 on x86.
+        private static final String READ_SYSCALL;
+        static {
+            String arch = System.getProperty("os.arch");
+            if (arch.equals("aarch64"))
+                READ_SYSCALL = "63";
+            else if (arch.equals("x86") || arch.equals("i386"))
+                READ_SYSCALL = "3";
+            else
+                READ_SYSCALL = "0";
+        }
+        
+        static boolean isSupported() {
+            return Files.exists(Paths.get("/proc/self/stat"));
+        }
+        
+        // Bytes read by the program when we fed the last input line.
+        private long lastReadCount = -1;
+        
+        public long awaitRead(Process process, OutputCollector output) throws IOException {
+            String proc = "/proc/" + process.pid() + "/";
+            long lastSize = -1;
+            while (process.isAlive()) {
+                // Blocked reading stdin for two polls in a row, and no new output
+                // in between, means all the output for the last input was collected.
+                // The program must also have read something since the last input
+                // line, otherwise it may simply not have woken up for it yet.
+                if (isBlockedOnStdin(proc) && getReadCount(proc) != lastReadCount) {
+                    long size = output.size();
+                    if (size == lastSize) {
+                        lastReadCount = getReadCount(proc);
+                        return size;
+                    }
+                    lastSize = size;
+                }
+                else {
+                    lastSize = -1;
+                }
+                
+                try {
+                    Thread.sleep(POLL_INTERVAL);
+                } catch (Exception e) {}
+            }
+            return -1;
+        }
+        
+        private boolean isBlockedOnStdin(String proc) {
+            try {
+                // The third field of stat is the state, "S" is sleeping.
+                String stat = new String(Files.readAllBytes(Paths.get(proc + "stat")), StandardCharsets.US_ASCII);
+                String state = stat.substring(stat.lastIndexOf(")") + 2).split(" ")[0];
+                if (!state.equals("S"))
+                    return false;
+                
+                // The system call being made and its arguments, the first one is the file descriptor.
+                String syscall = new String(Files.readAllBytes(Paths.get(proc + "syscall")), StandardCharsets.US_ASCII).trim();
+                String[] fields = syscall.split(" ");
+                if (fields.length > 1)
+                    return fields[0].equals(READ_SYSCALL) && fields[1].equals("0x0");
+                
+                // We may not be allowed to read syscall, then the kernel function it sleeps in tells us enough.
+                String wchan = new String(Files.readAllBytes(Paths.get(proc + "wchan")), StandardCharsets.US_ASCII).trim();
+                return wchan.indexOf("pipe_read") >= 0 || wchan.indexOf("pipe_wait") >= 0;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+        
+        // The "rchar" line of /proc/<pid>/io, or -2 if it cannot be read.
+        private long getReadCount(String proc) {
+            try {
+                for (String line : Files.readAllLines(Paths.get(proc + "io"), StandardCharsets.US_ASCII))
+                    if (line.startsWith("rchar:"))
+                        return Long.parseLong(line.substring(6).trim());
+            } catch (Exception e) {}
+            return -2;
+        }
+        
+        public void close() {}
+    }
+    
+    // Feeds the next input line when the output ends with the prompt that comes before it in the result file.
+    static class ExpectWatcher implements ReadWatcher {
+        private static final int POLL_INTERVAL = 1; // In milliseconds
+        
+        // The prompt for each input line, null if it was not found in the result file.
+        private final List<String> prompts = new ArrayList<String>();
+        private int next = 0;
+        private long lastPosition = 0;
+        
+        ExpectWatcher(List<String> expectedLines, List<String> inputLines) {
+            int cursor = 0;
+            for (String input : inputLines) {
+                if (input.startsWith("__"))
+                    continue;
+                
+                // The input line is at the end of a line in the result file, the prompt
+                // is what comes before it. If the input is on its own line, the prompt
+                // is the line before it.
+                String prompt = null;
+                for (int i = cursor; i < expectedLines.size(); i++) {
+                    String line = trimEnd(expectedLines.get(i));
+                    if (!line.endsWith(input))
+                        continue;
+                    
+                    prompt = trimEnd(line.substring(0, line.length() - input.length()));
+                    for (int j = i - 1; prompt.length() == 0 && j >= cursor; j--)
+                        prompt = trimEnd(expectedLines.get(j));
+                    if (prompt.length() == 0)
+                        prompt = null;
+                    cursor = i + 1;
                     break;
                 }
+                prompts.add(prompt);
+            }
+        }
+        
+        public long awaitRead(Process process, OutputCollector output) throws IOException {
+            String prompt = next < prompts.size() ? prompts.get(next) : null;
+            next++;
+            
+            long deadline = System.currentTimeMillis() + Input_Delay;
+            while (process.isAlive()) {
+                long size = output.size();
+                if (prompt != null && size > lastPosition) {
+                    String text = trimEnd(output.getString((int)lastPosition, (int)size));
+                    if (text.endsWith(prompt)) {
+                        lastPosition = size;
+                        return lastPosition;
+                    }
+                }
+                
+                // The prompt did not show up, feed the line anyway.
+                if (System.currentTimeMillis() >= deadline) {
+                    lastPosition = size;
+                    return lastPosition;
+                }
+                
+                try {
+                    Thread.sleep(POLL_INTERVAL);
+                } catch (Exception e) {}
+            }
+            return -1;
+        }
+        
+        public void close() {}
+        
+        private static String trimEnd(String s) {
+            int end = s.length();
+            while (end > 0 && Character.isWhitespace(s.charAt(end - 1)))
+                end--;
+            return s.substring(0, end);
+        }
+    }
+    
+    // Run the program and feed an input line whenever the watcher tells us it asks for one.
+    private static void runOnDemand(String cmd, List<String> inputLines, ReadWatcher watcher) throws IOException {
+        final Process process = Runtime.getRuntime().exec(cmd);
+        
+        // Collect the output as raw bytes, the watchers count bytes too.
+        OutputCollector output = new OutputCollector(process.getInputStream());
+        output.start();
+        
+        final Scanner errorScanner = new Scanner(new InputStreamReader(process.getErrorStream()));
+        final List<String> errorLines = new ArrayList<String>();
+        Thread errorThread = new Thread(new Runnable() {
+            public void run() {
+                while (errorScanner.hasNextLine())
+                    errorLines.add(errorScanner.nextLine());
+            }
+        });
+        errorThread.start();
+        
+        // The output before each input line is complete once the program reads, so it is printed right away.
+        Transcript transcript = newTranscript();
+        int start = 0;
+        
+        PrintWriter pWriter = new PrintWriter(process.getOutputStream());
+        try {
+            for (String line : getInputLines(inputLines)) {
+                if (line.startsWith("__pause__")) {
+                    int ms = Integer.parseInt(line.substring(line.indexOf(" ") + 1).trim());
+                    try {
+                        Thread.sleep(ms);
+                    } catch (Exception e) {}
+                    continue;
+                }
                 
-                //line += ((Line)inputLines.get(0)).text + System.getProperty("line.separator");
-                line += ((Line)inputLines.get(0)).text + "\n";
-                inputLines.remove(0);
+                // The global pause is only for the delays of the timestamp mode.
+                if (line.startsWith("__global_pause__"))
+                    continue;
+                
+                long position = watcher.awaitRead(process, output);
+                if (position < 0)
+                    break;
+                
+                int end = (int)Math.min(position, output.size());
+                transcript.append(output.getString(start, end));
+                transcript.appendInput(line);
+                start = end;
+                pWriter.println(line);
+                pWriter.flush();
+            }
+        } finally {
+            pWriter.close();
+            watcher.close();
+        }
+        
+        // No more input, print the rest of the output line by line until the program ends.
+        try {
+            while (output.isAlive()) {
+                int end = output.getLineEnd(start);
+                transcript.append(output.getString(start, end));
+                start = end;
+                output.join(50);
+            }
+            errorThread.join();
+        } catch (InterruptedException e) {}
+        transcript.append(output.getString(start, (int)output.size()));
+        
+        CompareResult(transcript.finish());
+        
+        for (String line : errorLines)
+            System.err.println(line);
+    }
+    
+    // Input lines of a test case, without the first line, comments and empty lines.
+    // Pause directives are kept, they start with "__".
+    static List<String> getInputLines(List<String> inputLines) {
+        List<String> lines = new ArrayList<String>();
+        
+        boolean bCommented = false; // true means we are in a comment section.
+        for (int i = 1; i < inputLines.size(); i++) {
+            String line  = inputLines.get(i);
+            
+            // Skip comments
+            if (line.indexOf("//") >= 0) {
+                line = line.substring(0, line.indexOf("//"));
+            }
+            else if (line.indexOf("/*") >= 0) {
+                line = line.substring(0, line.indexOf("/*"));
+                bCommented = true;
+                continue;
+            }
+            else if (line.indexOf("*/") >= 0) {
+                line = line.substring(line.indexOf("*/") + 2);
+                bCommented = false;
                 continue;
             }
+            else if (bCommented) {
+                continue;
+            }
+                 
+            // Skip empty lines
+            line = line.trim();
+            if (line.length() == 0)
+                continue;
+            
+            lines.add(line);
+        }
+        
+        return lines;
+    }
+    
+    // A Java agent must be in a jar file, so we create one from the agent's class files.
+    private static void createAgentJar() throws IOException {
+        if (Files.exists(Paths.get(AGENT_JAR_NAME)))
+            return;
+        
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(new Attributes.Name("Premain-Class"), AGENT_CLASS_NAME);
+        
+        JarOutputStream jar = new JarOutputStream(Files.newOutputStream(Paths.get(AGENT_JAR_NAME)), manifest);
+        try {
+            for (File f : new File(".").listFiles()) {
+                String name = f.getName();
+                if (name.equals(AGENT_CLASS_NAME + ".class") || (name.startsWith(AGENT_CLASS_NAME + "$") && name.endsWith(".class"))) {
+                    jar.putNextEntry(new JarEntry(name));
+                    jar.write(Files.readAllBytes(f.toPath()));
+                    jar.closeEntry();
+                }
+            }
+        } finally {
+            jar.close();
+        }
+    }
+
+    // Print each line of the output as soon as it is complete, and compare it with the result file.
+    private static Transcript newTranscript() {
+        return new Transcript(new Transcript.LineListener() {
+            public void lineAdded(String line) {
+                System.out.println(line);
+                if (_comparer != null)
+                    _comparer.lineAdded(line);
+            }
+        });
+    }
+
+    // Insert input lines to the correct positions in the output lines. 
+    // The position to insert is determined by timestamp, as each chunk of output arrives.
+    static class TimestampMerger implements OutputCapture.ChunkListener {
+        private final Transcript transcript;
+        private int nextInput = 0;
+        private boolean failed = false;
+        
+        TimestampMerger(Transcript transcript) {
+            this.transcript = transcript;
         }
         
-        return line.replace("\r\n", "\n").split("\n");
+        public void chunkAdded(OutputCapture capture, int chunk) {
+            if (failed)
+                return;
+            
+            char[] chars = capture.getChars();
+            
+            // If time difference is too large, we consider it a line break, and possible
+            // point to insert an input line.
+            if (chunk > 0) {
+                long t1 = capture.getChunkTime(chunk - 1);
+                long t2 = capture.getChunkTime(chunk);
+                if (t2 - t1 > (Input_Delay / 2) * 1000000L) {
+                    // At this point, the next input line should be inserted here, but 
+                    // we need to verify the timestamp first.
+                    if (nextInput >= capture.getInputCount() ||
+                        capture.getInputTime(nextInput) - t1 <= 0 ||
+                        capture.getInputTime(nextInput) - t2 > 0) {
+                        // Something went wrong.
+                        int start = capture.getChunkStart(chunk - 1);
+                        System.out.println("Cannot match input and output lines.");
+                        System.out.println("The last output line: " + new String(chars, start, capture.getChunkStart(chunk) - start));
+                        if (nextInput < capture.getInputCount())
+                            System.out.println("The last input line: " + capture.getInputLine(nextInput));
+                        failed = true;
+                        return;
+                    }
+                    
+                    transcript.appendInput(capture.getInputLine(nextInput));
+                    nextInput++;
+                }
+            }
+            
+            int start = capture.getChunkStart(chunk);
+            transcript.append(chars, start, capture.getChunkStart(chunk + 1) - start);
+        }
     }
 
     // Compare output lines collected from the process to lines in a result file.
+    // The lines were already given to the comparer one by one as they came in.
     private static void CompareResult(String[] lines) {
-        Path path = Paths.get(_testResultFile);
-        
-        if (Files.exists(path)) { // Compare with the result file
-            List<String> inputLines = null;
+        if (_comparer != null) { // Compare with the result file
+            _comparer.report(System.out);
+        }
+        else if (_CREATE_RESULT_FILE) { // Write lines to the result file.
             try {
-                inputLines = Files.readAllLines(path, _ENCODING);
+                Files.write(Paths.get(_testResultFile), Arrays.asList(lines), _ENCODING);
             } catch (IOException e) {}
+        }
+    }
+
+    // Compares output lines with the lines in a result file. The lines are collected as they come in.
+    static class ResultComparer {
+        private final List<String> expectedLines;
+        private final List<String> lines = new ArrayList<String>();
+        
+        private ResultComparer(List<String> expectedLines) {
+            this.expectedLines = expectedLines;
+        }
+        
+        // null if there is no result file.
+        static ResultComparer load(Path path) {
+            if (!Files.exists(path))
+                return null;
             
-            System.out.println("===============================");
+            List<String> expectedLines = new ArrayList<String>();
+            try {
+                expectedLines = Files.readAllLines(path, _ENCODING);
+            } catch (IOException e) {}
+            return new ResultComparer(expectedLines);
+        }
+        
+        synchronized void lineAdded(String line) {
+            lines.add(line);
+        }
+        
+        synchronized void report(PrintStream out) {
+            out.println("===============================");
             
             boolean error = false;
             
-            if (lines.length > inputLines.size()) {
-                System.out.println("Error: Output is longer than expected!");
+            if (lines.size() > expectedLines.size()) {
+                out.println("Error: Output is longer than expected!");
                 error = true;
             }
             
-            int i = 0;
-            for (; i < inputLines.size(); i++) {
-                String line = inputLines.get(i).trim();
-                if (!line.equals(lines[i].trim()))
-                    break;
-            }
-            if (i < inputLines.size()) {
-                System.out.println("Error: A mismatch was found!");
-                System.out.println("  Line number : " + i);
-                System.out.println("  Expected    : " + inputLines.get(i));
-                System.out.println("  Actual      : " + lines[i]);
+            // A missing line counts as an empty one.
+            List<String> expected = expectedLines;
+            int end = expected.size();
+            while (end > lines.size() && expected.get(end - 1).trim().length() == 0)
+                end--;
+            expected = expected.subList(0, end);
+            
+            // Every block of lines that differ, aligned so that a missing or extra line only shows up once.
+            for (LineDiff.Hunk hunk : LineDiff.diff(expected, lines)) {
+                out.println("Error: A mismatch was found!");
+                out.println("  Line number : " + (hunk.expectedStart + 1));
+                for (int i = 0; i < hunk.expectedCount; i++)
+                    out.println("  Expected    : " + expected.get(hunk.expectedStart + i));
+                if (hunk.expectedCount == 0)
+                    out.println("  Expected    : (nothing)");
+                for (int i = 0; i < hunk.actualCount; i++)
+                    out.println("  Actual      : " + lines.get(hunk.actualStart + i));
+                if (hunk.actualCount == 0)
+                    out.println("  Actual      : (missing)");
                 error = true;
             }
             
             if (!error) {
-                System.out.println("No error.");
+                out.println("No error.");
             }
-            System.out.println("===============================");
-        }
-        else { // Write lines to the result file. Enable this section to create a result file.
-            //try {
-            //    Files.write(path, Arrays.asList(lines), _ENCODING);
-            //} catch (IOException e) {}
+            out.println("===============================");
         }
     }
-
-    private static String getTimeString() {
-        Calendar cal = Calendar.getInstance();
-        SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss");
-        return sdf.format(cal.getTime());
-    }
-    
-    private static Date getTime() {
-        Calendar cal = Calendar.getInstance();
-        return cal.getTime();
-    }
 }
@@ -0,0 +1,496 @@
+/*
+---------------
+2026-10-18
+agent
+
+Runs Java programs being tested inside one long running JVM.
+
+GradingTool starts a few of these workers and keeps them running, see
+JavaWorkerPool. A worker reads one request per line from stdin:
+
+RUN <test case name> <folder>
+
+It loads the main class named in the test case from the folder with a
+new class loader, so nothing is left over from the previous run, and
+runs its main method with System.in, System.out and System.err
+replaced. An input line is fed whenever the program tries to read and
+there is nothing left to read, like in agent mode, so the input lines
+end up at the right position in the output.
+
+The class loader sends every call of System.exit() in the program to
+Exit.exit(), which throws an Error that ends the program being tested
+instead of the worker (see ClassFile). Runtime.exit() and halt() are
+not caught, GradingTool does not give programs that use Runtime to a
+worker, nor GUI programs, programs that start threads, or programs that
+open files. The run still waits for every thread the program started
+that is not a daemon, and a worker that has threads of a program left
+after the run says QUIT and ends itself.
+
+The reply is what "java CodeTester <test case name> -agent" would have
+printed, one line at a time while the program runs: "OUT <line>" for
+standard output as soon as the line is complete, "ERR <line>" for
+error output after the program has ended, and "END" after the last
+line.
+
+The output of a program is limited to the number of bytes in the system
+property "outputLimit". A program that prints more gets an exception
+from print(), and the reply has a line "STOP <reason>" before "END".
+
+A request "CANCEL" while a program runs stops it, when GradingTool has
+seen enough of its output. The program gets an Error the next time it
+prints or reads, and its threads are interrupted. The reply ends as
+usual, so the worker is used again, unless the program is still running
+after STOP_GRACE_TIME, then the worker says QUIT like above.
+
+Files are opened relative to the folder of the worker, not the folder
+of the test run, so GradingTool only uses workers for assignments that
+do not come with data files.
+*/
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class JavaRunWorker {
+    static final String READY = "READY";
+    static final String RUN = "RUN";
+    static final String OUT = "OUT";
+    static final String ERR = "ERR";
+    static final String END = "END";
+    static final String STOP = "STOP";
+    static final String QUIT = "QUIT";
+    static final String CANCEL = "CANCEL";
+
+    private static final long OUTPUT_LIMIT = Long.getLong("outputLimit", Integer.MAX_VALUE);
+    private static final long THREAD_POLL_INTERVAL = 100; // In milliseconds
+    private static final long STOP_GRACE_TIME = 1000; // In milliseconds
+
+    // Marks the end of the requests in the queue.
+    private static final String NO_MORE_REQUESTS = "";
+
+    private static PrintStream _reply;
+
+    // The program that runs should stop, set by the request reader.
+    private static volatile boolean _bCancelled = false;
+
+    public static void main(String[] args) throws IOException {
+        _reply = new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8");
+
+        // Only _reply may write to the real stdout, it is how we answer.
+        System.setOut(System.err);
+        _reply.println(READY);
+
+        // Keeps reading the real stdin while System.in is replaced during a run, a CANCEL comes while a program runs.
+        final BufferedReader requests = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        final BlockingQueue<String> runs = new LinkedBlockingQueue<String>();
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    String request;
+                    while ((request = requests.readLine()) != null) {
+                        if (request.equals(CANCEL))
+                            _bCancelled = true;
+                        else if (request.startsWith(RUN + " "))
+                            runs.add(request);
+                    }
+                } catch (IOException e) {}
+                runs.add(NO_MORE_REQUESTS);
+            }
+        }, "Requests");
+        reader.setDaemon(true);
+        reader.start();
+
+        while (true) {
+            String request;
+            try {
+                request = runs.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (request == NO_MORE_REQUESTS)
+                break;
+
+            String rest = request.substring(RUN.length() + 1);
+            String testCaseName = rest.substring(0, rest.indexOf(" "));
+            File folder = new File(rest.substring(rest.indexOf(" ") + 1));
+            boolean bClean = true;
+            try {
+                bClean = run(folder, testCaseName);
+            } catch (Throwable e) {
+                _reply.println(ERR + " " + e);
+            }
+
+            if (!bClean) {
+                _reply.println(QUIT);
+                _reply.println(END);
+                break;
+            }
+            _reply.println(END);
+        }
+
+        System.exit(0);
+    }
+
+    /**
+     * Run the program of a test case and reply with its output.
+     *
+     * @return false if threads of the program are still running, the worker should not be used again.
+     */
+    private static boolean run(File folder, String testCaseName) throws Exception {
+        List<String> testCase = Files.readAllLines(new File(folder, testCaseName).toPath(), StandardCharsets.UTF_8);
+        String[] sections = testCase.get(0).split(" ");
+        String[] arguments = Arrays.copyOfRange(sections, 1, sections.length);
+
+        // Only the platform classes are shared with the program, not ours.
+        ProgramClassLoader loader = new ProgramClassLoader(folder);
+        final Method main = loader.loadClass(sections[0]).getMethod("main", String[].class);
+
+        // The output is compared while the program runs, and printed line by line.
+        final CodeTester.ResultComparer comparer = CodeTester.ResultComparer.load(Paths.get(folder.getPath(), testCaseName + "Result"));
+        Transcript transcript = new Transcript(new Transcript.LineListener() {
+            public void lineAdded(String line) {
+                if (comparer != null)
+                    comparer.lineAdded(line);
+                _reply.println(OUT + " " + line);
+            }
+        });
+
+        TranscriptOutputStream output = new TranscriptOutputStream(transcript, Charset.defaultCharset());
+        ByteArrayOutputStream error = new ByteArrayOutputStream();
+        final PrintStream out = new PrintStream(output, true);
+        final PrintStream err = new PrintStream(new LimitedOutputStream(error), true);
+        FeedingInputStream in = new FeedingInputStream(CodeTester.getInputLines(testCase), output, out);
+
+        InputStream oldIn = System.in;
+        PrintStream oldOut = System.out;
+        PrintStream oldErr = System.err;
+        System.setIn(in);
+        System.setOut(out);
+        System.setErr(err);
+        Exit.bExited = false;
+        // A CANCEL for the previous run came before this RUN, it is about that one.
+        _bCancelled = false;
+        ThreadGroup group = new ThreadGroup("program");
+        try {
+            final Object[] mainArgs = new Object[] { arguments };
+            Thread thread = new Thread(group, new Runnable() {
+                public void run() {
+                    try {
+                        main.invoke(null, mainArgs);
+                    } catch (InvocationTargetException e) {
+                        if (!(e.getCause() instanceof ExitException) && !(e.getCause() instanceof OutputLimitException)
+                                && !(e.getCause() instanceof StopException)) {
+                            err.print("Exception in thread \"main\" ");
+                            e.getCause().printStackTrace(err);
+                        }
+                    } catch (IllegalAccessException e) {
+                        err.println("Error: Main method not accessible in class " + sections[0]);
+                    }
+                }
+            }, "main");
+            thread.setContextClassLoader(loader);
+            thread.start();
+            while (thread.isAlive() && !_bCancelled)
+                thread.join(THREAD_POLL_INTERVAL);
+
+            // The program has not ended while a thread it started is still running, unless it called System.exit().
+            waitForThreads(group);
+        } finally {
+            System.setIn(oldIn);
+            System.setOut(oldOut);
+            System.setErr(oldErr);
+        }
+
+        // Threads that are still running cannot print into the next run.
+        output.close();
+        if (comparer != null) {
+            ByteArrayOutputStream report = new ByteArrayOutputStream();
+            comparer.report(new PrintStream(report, true));
+            for (String line : report.toString().split("\n"))
+                _reply.println(OUT + " " + line);
+        }
+
+        if (error.size() > 0)
+            for (String line : error.toString().split("\n"))
+                _reply.println(ERR + " " + line.replace("\r", ""));
+
+        if (output.size() > OUTPUT_LIMIT || error.size() > OUTPUT_LIMIT)
+            _reply.println(STOP + " The program printed more than " + OUTPUT_LIMIT + " bytes.");
+
+        return group.activeCount() == 0;
+    }
+
+    /**
+     * Wait until the threads of the program that are not daemons have
+     * ended, or it called System.exit(). Once the program is cancelled,
+     * its threads are interrupted and waited for STOP_GRACE_TIME at most.
+     */
+    private static void waitForThreads(ThreadGroup group) throws InterruptedException {
+        long deadline = 0;
+        while (!Exit.bExited && (deadline == 0 || System.currentTimeMillis() < deadline)) {
+            if (_bCancelled && deadline == 0) {
+                deadline = System.currentTimeMillis() + STOP_GRACE_TIME;
+                group.interrupt();
+            }
+
+            Thread[] threads = new Thread[group.activeCount() + 1];
+            int count = group.enumerate(threads);
+            Thread running = null;
+            for (int i = 0; i < count && running == null; i++)
+                if (!threads[i].isDaemon() && threads[i].isAlive())
+                    running = threads[i];
+            if (running == null)
+                return;
+            running.join(THREAD_POLL_INTERVAL);
+        }
+    }
+
+    /**
+     * Loads the classes of the program from its folder, with every call of
+     * System.exit() sent to Exit.exit().
+     */
+    static class ProgramClassLoader extends ClassLoader {
+        private final File folder;
+
+        ProgramClassLoader(File folder) {
+            super(ClassLoader.getPlatformClassLoader());
+            this.folder = folder;
+        }
+
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            // The program has to see our Exit, not a copy of it.
+            if (name.equals(Exit.class.getName()))
+                return Exit.class;
+            return super.loadClass(name, resolve);
+        }
+
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            File file = new File(folder, name.replace('.', File.separatorChar) + ".class");
+            try {
+                byte[] bytes = new ClassFile(Files.readAllBytes(file.toPath()))
+                    .redirectStaticMethod("java/lang/System", "exit", "(I)V", Exit.class.getName().replace('.', '/'));
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+
+        protected URL findResource(String name) {
+            File file = new File(folder, name);
+            try {
+                return file.isFile() ? file.toURI().toURL() : null;
+            } catch (MalformedURLException e) {
+                return null;
+            }
+        }
+    }
+
+    // What the calls of System.exit() in the program being tested call instead.
+    public static class Exit {
+        static volatile boolean bExited;
+
+        public static void exit(int status) {
+            bExited = true;
+            throw new ExitException(status);
+        }
+    }
+
+    // Thrown when the program prints or reads after it was cancelled, an Error like ExitException.
+    static class StopException extends Error {
+        private static final long serialVersionUID = 1L;
+
+        StopException() {
+            super("The run was cancelled");
+        }
+    }
+
+    // An Error, so a program that catches every Exception still ends.
+    static class ExitException extends Error {
+        private static final long serialVersionUID = 1L;
+
+        ExitException(int status) {
+            super("System.exit(" + status + ")");
+        }
+    }
+
+    /**
+     * The standard output of the program. Every complete line goes to the
+     * transcript as soon as it is written, and the rest before an input
+     * line. It refuses to grow past the output limit, one byte more is
+     * counted, so we know it was reached.
+     */
+    static class TranscriptOutputStream extends OutputStream {
+        private final Transcript transcript;
+        private final Charset charset;
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private long size = 0;
+        private boolean bClosed = false;
+
+        TranscriptOutputStream(Transcript transcript, Charset charset) {
+            this.transcript = transcript;
+            this.charset = charset;
+        }
+
+        public void write(int b) {
+            write(new byte[] { (byte)b }, 0, 1);
+        }
+
+        public synchronized void write(byte[] b, int off, int len) {
+            if (bClosed)
+                return;
+            if (_bCancelled)
+                throw new StopException();
+
+            long room = OUTPUT_LIMIT + 1 - size;
+            int count = (int)Math.max(Math.min(len, room), 0);
+            size += count;
+
+            // A line break is never part of a char of more than one byte.
+            int lastBreak = -1;
+            for (int i = off + count - 1; i >= off && lastBreak < 0; i--)
+                if (b[i] == '\n')
+                    lastBreak = i;
+            if (lastBreak < 0) {
+                pending.write(b, off, count);
+            }
+            else {
+                pending.write(b, off, lastBreak + 1 - off);
+                flushPending();
+                pending.write(b, lastBreak + 1, off + count - lastBreak - 1);
+            }
+
+            if (count < len)
+                throw new OutputLimitException();
+        }
+
+        // The input line goes after everything that was printed so far.
+        synchronized void appendInput(String line) {
+            flushPending();
+            transcript.appendInput(line);
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        // The program has ended, anything written after this is dropped.
+        public synchronized void close() {
+            if (bClosed)
+                return;
+            bClosed = true;
+            flushPending();
+            transcript.finish();
+        }
+
+        private void flushPending() {
+            transcript.append(new String(pending.toByteArray(), charset));
+            pending.reset();
+        }
+    }
+
+    // Refuses to grow past the output limit. One byte more is kept, so we know it was reached.
+    static class LimitedOutputStream extends OutputStream {
+        private final ByteArrayOutputStream output;
+
+        LimitedOutputStream(ByteArrayOutputStream output) {
+            this.output = output;
+        }
+
+        public void write(int b) {
+            write(new byte[] { (byte)b }, 0, 1);
+        }
+
+        public void write(byte[] b, int off, int len) {
+            long room = OUTPUT_LIMIT + 1 - output.size();
+            if (len > room) {
+                output.write(b, off, (int)Math.max(room, 0));
+                throw new OutputLimitException();
+            }
+            output.write(b, off, len);
+        }
+    }
+
+    static class OutputLimitException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        OutputLimitException() {
+            super("Output limit of " + OUTPUT_LIMIT + " bytes reached");
+        }
+    }
+
+    // Feeds the next input line when the program reads and there is nothing left.
+    static class FeedingInputStream extends InputStream {
+        private final List<String> inputLines;
+        private final TranscriptOutputStream output;
+        private final PrintStream out;
+        private int next = 0;
+        private byte[] current = new byte[0];
+        private int position = 0;
+
+        FeedingInputStream(List<String> inputLines, TranscriptOutputStream output, PrintStream out) {
+            this.inputLines = inputLines;
+            this.output = output;
+            this.out = out;
+        }
+
+        // Returns false if there is no more input.
+        private synchronized boolean ensureInput() {
+            if (_bCancelled)
+                throw new StopException();
+            while (position >= current.length) {
+                // Pauses only matter when feeding by time.
+                while (next < inputLines.size() && inputLines.get(next).startsWith("__"))
+                    next++;
+                if (next >= inputLines.size())
+                    return false;
+
+                out.flush();
+                String line = inputLines.get(next++);
+                output.appendInput(line);
+                current = (line + "\n").getBytes();
+                position = 0;
+            }
+            return true;
+        }
+
+        public synchronized int read() {
+            if (!ensureInput())
+                return -1;
+            return current[position++] & 0xff;
+        }
+
+        public synchronized int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!ensureInput())
+                return -1;
+            int count = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        public synchronized int available() {
+            return current.length - position;
+        }
+    }
+}
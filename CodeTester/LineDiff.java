@@ -0,0 +1,200 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the smallest set of lines to insert and delete to turn the
+ * expected lines into the actual lines, with the O(ND) algorithm of
+ * Myers ("An O(ND) Difference Algorithm and Its Variations", 1986), in
+ * its linear space version. N is the number of lines and D the number of
+ * differences, so outputs that are nearly right are compared quickly no
+ * matter how long they are.
+ *
+ * Lines are compared without leading and trailing spaces. Every distinct
+ * line gets a number first, so the algorithm only compares numbers.
+ *
+ * GradingTool uses this file too, it is compiled with "javac -d . *.java
+ * CodeTester/ClassFile.java CodeTester/LineDiff.java".
+ */
+class LineDiff {
+    /**
+     * Lines that are different: expectedCount expected lines from
+     * expectedStart were replaced by actualCount actual lines from
+     * actualStart. Starts count from 0. One of the counts can be 0, for
+     * lines that are missing or extra.
+     */
+    static class Hunk {
+        final int expectedStart;
+        final int expectedCount;
+        final int actualStart;
+        final int actualCount;
+
+        Hunk(int expectedStart, int expectedCount, int actualStart, int actualCount) {
+            this.expectedStart = expectedStart;
+            this.expectedCount = expectedCount;
+            this.actualStart = actualStart;
+            this.actualCount = actualCount;
+        }
+    }
+
+    private final int[] a;
+    private final int[] b;
+    private final boolean[] deleted;
+    private final boolean[] inserted;
+
+    // Work space for the middle snake, forward and backward.
+    private final int[] vf;
+    private final int[] vb;
+
+    private LineDiff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+        deleted = new boolean[a.length];
+        inserted = new boolean[b.length];
+        int size = 2 * (a.length + b.length) + 3;
+        vf = new int[size];
+        vb = new int[size];
+    }
+
+    /**
+     * The differences between the expected and the actual lines, in order.
+     * An empty list means they are the same.
+     */
+    static List<Hunk> diff(List<String> expected, List<String> actual) {
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        LineDiff diff = new LineDiff(toIds(expected, ids), toIds(actual, ids));
+        diff.compare(0, diff.a.length, 0, diff.b.length);
+        return diff.toHunks();
+    }
+
+    private static int[] toIds(List<String> lines, Map<String, Integer> ids) {
+        int[] result = new int[lines.size()];
+        int i = 0;
+        for (String line : lines) {
+            String key = line.trim();
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = ids.size();
+                ids.put(key, id);
+            }
+            result[i++] = id;
+        }
+        return result;
+    }
+
+    // Mark the lines that differ between a[aStart, aEnd) and b[bStart, bEnd).
+    private void compare(int aStart, int aEnd, int bStart, int bEnd) {
+        // The same lines at the start and at the end are not part of any difference.
+        while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+            aStart++;
+            bStart++;
+        }
+        while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1]) {
+            aEnd--;
+            bEnd--;
+        }
+
+        if (aStart == aEnd) {
+            for (int j = bStart; j < bEnd; j++)
+                inserted[j] = true;
+        }
+        else if (bStart == bEnd) {
+            for (int i = aStart; i < aEnd; i++)
+                deleted[i] = true;
+        }
+        else {
+            // Split at the middle snake, both halves have about half of the differences.
+            int[] snake = findMiddleSnake(aStart, aEnd, bStart, bEnd);
+            compare(aStart, snake[0], bStart, snake[1]);
+            compare(snake[2], aEnd, snake[3], bEnd);
+        }
+    }
+
+    /**
+     * The middle snake of an optimal path from (aStart, bStart) to (aEnd,
+     * bEnd), found by searching forward from the start and backward from
+     * the end until they meet.
+     *
+     * @return {x, y, u, v}, the snake goes from (x, y) to (u, v).
+     */
+    private int[] findMiddleSnake(int aStart, int aEnd, int bStart, int bEnd) {
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int offset = n + m + 1;
+        int max = (n + m + 1) / 2;
+
+        // vf[offset + k] is how far (in a) the forward search got on diagonal k = x - y,
+        // vb[offset + c] the same for the backward search, counted from the end.
+        vf[offset + 1] = 0;
+        vb[offset + 1] = 0;
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && vf[offset + k - 1] < vf[offset + k + 1]))
+                    x = vf[offset + k + 1];
+                else
+                    x = vf[offset + k - 1] + 1;
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aStart + x] == b[bStart + y]) {
+                    x++;
+                    y++;
+                }
+                vf[offset + k] = x;
+
+                int c = delta - k;
+                if (odd && c >= -(d - 1) && c <= d - 1 && x + vb[offset + c] >= n)
+                    return new int[] { aStart + x0, bStart + y0, aStart + x, bStart + y };
+            }
+
+            for (int c = -d; c <= d; c += 2) {
+                int x;
+                if (c == -d || (c != d && vb[offset + c - 1] < vb[offset + c + 1]))
+                    x = vb[offset + c + 1];
+                else
+                    x = vb[offset + c - 1] + 1;
+                int y = x - c;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aEnd - 1 - x] == b[bEnd - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                vb[offset + c] = x;
+
+                int k = delta - c;
+                if (!odd && k >= -d && k <= d && x + vf[offset + k] >= n)
+                    return new int[] { aEnd - x, bEnd - y, aEnd - x0, bEnd - y0 };
+            }
+        }
+
+        // Not reached, the searches always meet by d = max.
+        return new int[] { aEnd, bEnd, aEnd, bEnd };
+    }
+
+    private List<Hunk> toHunks() {
+        List<Hunk> hunks = new ArrayList<Hunk>();
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (i < a.length && j < b.length && !deleted[i] && !inserted[j]) {
+                i++;
+                j++;
+                continue;
+            }
+
+            int iStart = i;
+            int jStart = j;
+            while (i < a.length && deleted[i])
+                i++;
+            while (j < b.length && inserted[j])
+                j++;
+            hunks.add(new Hunk(iStart, i - iStart, jStart, j - jStart));
+        }
+        return hunks;
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Collects the output of the program being tested on its own thread, and
+ * remembers when each part of it arrived.
+ *
+ * The output is read in chunks, as much as the pipe has at a time, and
+ * decoded into one growing char array. Only the time a chunk arrived is
+ * kept, in a parallel long array, since all the chars of a chunk arrived
+ * together. The times of the input lines fed to the program are kept the
+ * same way. All times are from System.nanoTime().
+ *
+ * No object is created per char or per chunk, so even a very long output
+ * is collected without keeping the garbage collector busy.
+ *
+ * The listener is told about every chunk on this thread as soon as it has
+ * arrived, so the output can be put together while the program runs.
+ */
+class OutputCapture extends Thread {
+    interface ChunkListener {
+        void chunkAdded(OutputCapture capture, int chunk);
+    }
+
+    private static final int READ_SIZE = 8192;
+
+    private final Reader reader;
+    private final ChunkListener listener;
+
+    private char[] chars = new char[READ_SIZE];
+    private int length = 0;
+
+    // Chunk i is chars[chunkStarts[i]] up to the start of chunk i + 1, it arrived at chunkTimes[i].
+    private int[] chunkStarts = new int[64];
+    private long[] chunkTimes = new long[64];
+    private int chunkCount = 0;
+
+    private String[] inputLines = new String[16];
+    private long[] inputTimes = new long[16];
+    private int inputCount = 0;
+
+    OutputCapture(InputStream inStream, Charset charset, ChunkListener listener) {
+        this.reader = new InputStreamReader(inStream, charset);
+        this.listener = listener;
+    }
+
+    public void run() {
+        try {
+            while (true) {
+                if (chars.length - length < READ_SIZE)
+                    chars = Arrays.copyOf(chars, chars.length * 2);
+
+                int count = reader.read(chars, length, READ_SIZE);
+                if (count < 0)
+                    break;
+                if (count == 0)
+                    continue;
+
+                // Take the time before looking at the input lines, so that every
+                // input line fed before this chunk arrived is visible to the listener.
+                long time = System.nanoTime();
+                addChunk(length, time);
+                length += count;
+                listener.chunkAdded(this, chunkCount - 1);
+            }
+        } catch (IOException e) {}
+    }
+
+    private void addChunk(int start, long time) {
+        if (chunkCount == chunkStarts.length) {
+            chunkStarts = Arrays.copyOf(chunkStarts, chunkCount * 2);
+            chunkTimes = Arrays.copyOf(chunkTimes, chunkCount * 2);
+        }
+        chunkStarts[chunkCount] = start;
+        chunkTimes[chunkCount] = time;
+        chunkCount++;
+    }
+
+    /**
+     * Remember that an input line is being fed to the program now.
+     */
+    synchronized void addInput(String line) {
+        if (inputCount == inputLines.length) {
+            inputLines = Arrays.copyOf(inputLines, inputCount * 2);
+            inputTimes = Arrays.copyOf(inputTimes, inputCount * 2);
+        }
+        inputLines[inputCount] = line;
+        inputTimes[inputCount] = System.nanoTime();
+        inputCount++;
+    }
+
+    // The chunks are read on this thread, or after it has ended.
+
+    char[] getChars() {
+        return chars;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    int getChunkCount() {
+        return chunkCount;
+    }
+
+    int getChunkStart(int chunk) {
+        return chunk < chunkCount ? chunkStarts[chunk] : length;
+    }
+
+    long getChunkTime(int chunk) {
+        return chunkTimes[chunk];
+    }
+
+    // The input lines may be read on any thread.
+
+    synchronized int getInputCount() {
+        return inputCount;
+    }
+
+    synchronized String getInputLine(int input) {
+        return inputLines[input];
+    }
+
+    synchronized long getInputTime(int input) {
+        return inputTimes[input];
+    }
+}
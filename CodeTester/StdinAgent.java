@@ -0,0 +1,116 @@
+/*
+---------------
+2026-10-18
+
+A Java agent that tells CodeTester when the program being tested is
+waiting for input.
+
+CodeTester launches the program with:
+
+"java -javaagent:StdinAgent.jar=<port> <program>"
+
+Before the main method of the program runs, the agent connects to
+CodeTester on the given port of localhost, and replaces System.in and
+System.out:
+
+* System.out counts the bytes written by the program.
+* System.in sends a line "READ <count>" to CodeTester whenever the
+  program tries to read and there is nothing left to read, <count>
+  being the number of bytes written to System.out so far.
+
+CodeTester then feeds exactly one input line and inserts it into the
+collected output right after <count> bytes. No delay is needed, and
+the input line is always at the right position.
+
+StdinAgent.jar is created by CodeTester from the class files of this
+agent, see CodeTester.createAgentJar().
+*/
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class StdinAgent {
+    private static OutputStream _signal;
+    private static CountingOutputStream _out;
+
+    public static void premain(String args) throws IOException {
+        int port = Integer.parseInt(args.trim());
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        _signal = socket.getOutputStream();
+
+        _out = new CountingOutputStream(new FileOutputStream(FileDescriptor.out));
+        System.setOut(new PrintStream(_out, true));
+        System.setIn(new ObservedInputStream(System.in));
+    }
+
+    // Tell CodeTester that the program is going to wait for input.
+    private static synchronized void signalRead() throws IOException {
+        System.out.flush();
+        _signal.write(("READ " + _out.count + "\n").getBytes(StandardCharsets.US_ASCII));
+        _signal.flush();
+    }
+
+    static class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        volatile long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        public synchronized void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    static class ObservedInputStream extends InputStream {
+        private final InputStream in;
+
+        ObservedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        private void beforeRead() throws IOException {
+            if (in.available() == 0)
+                signalRead();
+        }
+
+        public synchronized int read() throws IOException {
+            beforeRead();
+            return in.read();
+        }
+
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            beforeRead();
+            return in.read(b, off, len);
+        }
+
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
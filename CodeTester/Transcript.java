@@ -0,0 +1,99 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Puts the output of the program being tested and the input lines fed to
+ * it together into lines, in the order they come in.
+ *
+ * Every char is looked at once, and a line is handed to the listener as
+ * soon as it is complete, so the transcript can be printed and compared
+ * while the program is still running. "\r\n" counts as one line break.
+ * Empty lines at the very end are dropped, like String.split() does.
+ */
+class Transcript {
+    interface LineListener {
+        void lineAdded(String line);
+    }
+
+    private final LineListener listener;
+    private final List<String> lines = new ArrayList<String>();
+    private final StringBuilder current = new StringBuilder();
+
+    // Empty lines are held back until we know they are not at the end.
+    private int pendingEmptyLines = 0;
+    private boolean hasLineBreak = false;
+
+    Transcript(LineListener listener) {
+        this.listener = listener;
+    }
+
+    void append(char[] chars, int offset, int count) {
+        int start = offset;
+        int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            if (chars[i] == '\n') {
+                current.append(chars, start, i - start);
+                endLine();
+                start = i + 1;
+            }
+        }
+        current.append(chars, start, end - start);
+    }
+
+    void append(String text) {
+        append(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * An input line goes at the end of the current line, the user pressed
+     * Enter after typing it.
+     */
+    void appendInput(String line) {
+        current.append(line);
+        endLine();
+    }
+
+    private void endLine() {
+        hasLineBreak = true;
+        int length = current.length();
+        if (length > 0 && current.charAt(length - 1) == '\r')
+            current.setLength(length - 1);
+
+        if (current.length() == 0) {
+            pendingEmptyLines++;
+            return;
+        }
+
+        addPendingEmptyLines();
+        addLine(current.toString());
+        current.setLength(0);
+    }
+
+    private void addPendingEmptyLines() {
+        for (; pendingEmptyLines > 0; pendingEmptyLines--)
+            addLine("");
+    }
+
+    private void addLine(String line) {
+        lines.add(line);
+        listener.lineAdded(line);
+    }
+
+    /**
+     * There is no more output. Adds the last line if it did not end with a
+     * line break.
+     *
+     * @return All the lines.
+     */
+    String[] finish() {
+        if (current.length() > 0) {
+            addPendingEmptyLines();
+            addLine(current.toString());
+            current.setLength(0);
+        }
+        else if (!hasLineBreak && lines.isEmpty()) {
+            addLine("");
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+}
@@ -0,0 +1,215 @@
+import java.io.*;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+/**
+ * Compiles Java programs inside the tool instead of starting a javac
+ * process for every student.
+ *
+ * The compiler and its file manager stay alive for as long as the tool
+ * runs. The file manager caches what it has read from the JDK, so only
+ * the first compile on a thread pays for loading the platform classes.
+ * File managers are not thread safe, so every thread gets its own.
+ *
+ * Class files are kept in memory while compiling, and written to the
+ * folder only if there was no error, like javac does. The outcome comes
+ * back as a list of diagnostics instead of lines of error output.
+ *
+ * A compile can be cancelled: the compiler is stopped the next time it
+ * starts or finishes a step for a file, like parsing or generating code.
+ */
+class CompilationService {
+    private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+
+    private static final ThreadLocal<StandardJavaFileManager> FILE_MANAGERS = new ThreadLocal<StandardJavaFileManager>() {
+        protected StandardJavaFileManager initialValue() {
+            return COMPILER.getStandardFileManager(null, Locale.getDefault(), null);
+        }
+    };
+
+    private CompilationService() {}
+
+    /**
+     * The compiler is not available if the tool runs on a JRE without it,
+     * javac has to be started as a process then.
+     */
+    static boolean isAvailable() {
+        return COMPILER != null;
+    }
+
+    /**
+     * What came out of one compile.
+     */
+    static class Result {
+        private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+        private final boolean success;
+
+        Result(List<Diagnostic<? extends JavaFileObject>> diagnostics, boolean success) {
+            this.diagnostics = diagnostics;
+            this.success = success;
+        }
+
+        List<Diagnostic<? extends JavaFileObject>> getDiagnostics() {
+            return diagnostics;
+        }
+
+        /**
+         * The compiler succeeded, and said nothing but notes. Warnings count
+         * as failures, as they always have for javac's error output.
+         */
+        boolean isClean() {
+            if (!success)
+                return false;
+            for (Diagnostic<? extends JavaFileObject> d : diagnostics)
+                if (d.getKind() != Diagnostic.Kind.NOTE)
+                    return false;
+            return true;
+        }
+
+        // The diagnostics as javac would print them.
+        List<String> toLines() {
+            List<String> lines = new ArrayList<String>();
+            for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+                String message = d.getMessage(Locale.getDefault());
+                if (d.getSource() == null) {
+                    String prefix = d.getKind() == Diagnostic.Kind.NOTE ? "Note: " : d.getKind().toString().toLowerCase() + ": ";
+                    lines.add(prefix + message);
+                    continue;
+                }
+
+                String kind = d.getKind() == Diagnostic.Kind.MANDATORY_WARNING ? "warning" : d.getKind().toString().toLowerCase();
+                lines.add(new File(d.getSource().getName()).getName() + ":" + d.getLineNumber() + ": " + kind + ": " + message);
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Compile Java files in a folder and write the class files into it.
+     *
+     * @param folder    The folder with the source files, it is also the class path.
+     * @param arguments File names relative to the folder, and options for javac,
+     *                  like the content of a javac @file.
+     * @param cancelled Tells if the compile should stop.
+     */
+    static Result compile(File folder, List<String> arguments, final BooleanSupplier cancelled) throws IOException {
+        StandardJavaFileManager standardManager = FILE_MANAGERS.get();
+
+        List<File> sourceFiles = new ArrayList<File>();
+        List<String> options = new ArrayList<String>();
+        for (String argument : arguments) {
+            if (argument.toLowerCase().endsWith(".java"))
+                sourceFiles.add(new File(folder, argument));
+            else
+                options.add(argument);
+        }
+        options.add("-classpath");
+        options.add(folder.getPath());
+
+        MemoryFileManager fileManager = new MemoryFileManager(standardManager);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        boolean success;
+        try {
+            JavaCompiler.CompilationTask task = COMPILER.getTask(null, fileManager, diagnostics, options, null,
+                standardManager.getJavaFileObjectsFromFiles(sourceFiles));
+            if (task instanceof JavacTask) {
+                ((JavacTask)task).addTaskListener(new TaskListener() {
+                    public void started(TaskEvent e) {
+                        if (cancelled.getAsBoolean())
+                            throw new CancellationException("The compile was cancelled");
+                    }
+
+                    public void finished(TaskEvent e) {
+                        started(e);
+                    }
+                });
+            }
+            success = task.call();
+        } catch (RuntimeException e) {
+            // Bad options, a crash of the compiler itself, or the listener above.
+            diagnostics.report(new CompilerFailure(cancelled.getAsBoolean() ? new CancellationException("The compile was cancelled") : e));
+            success = false;
+        }
+
+        if (success)
+            fileManager.writeClassFiles(folder);
+
+        // Let the shared file manager forget about the student's files, but keep the JDK.
+        standardManager.flush();
+        return new Result(diagnostics.getDiagnostics(), success);
+    }
+
+    // Keeps the class files the compiler writes in memory.
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, ByteArrayOutputStream> classFiles = new LinkedHashMap<String, ByteArrayOutputStream>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, final String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+            if (location != StandardLocation.CLASS_OUTPUT || kind != JavaFileObject.Kind.CLASS)
+                return super.getJavaFileForOutput(location, className, kind, sibling);
+
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                public OutputStream openOutputStream() {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    classFiles.put(className, out);
+                    return out;
+                }
+            };
+        }
+
+        void writeClassFiles(File folder) throws IOException {
+            for (Map.Entry<String, ByteArrayOutputStream> entry : classFiles.entrySet()) {
+                File file = new File(folder, entry.getKey().replace('.', File.separatorChar) + ".class");
+                file.getParentFile().mkdirs();
+                Files.write(file.toPath(), entry.getValue().toByteArray());
+            }
+        }
+
+        // Closing would close the shared file manager.
+        public void close() {}
+    }
+
+    // Reported when the compiler throws instead of reporting an error.
+    private static class CompilerFailure implements Diagnostic<JavaFileObject> {
+        private final Exception exception;
+
+        CompilerFailure(Exception exception) {
+            this.exception = exception;
+        }
+
+        public Diagnostic.Kind getKind() { return Diagnostic.Kind.ERROR; }
+        public JavaFileObject getSource() { return null; }
+        public long getPosition() { return NOPOS; }
+        public long getStartPosition() { return NOPOS; }
+        public long getEndPosition() { return NOPOS; }
+        public long getLineNumber() { return NOPOS; }
+        public long getColumnNumber() { return NOPOS; }
+        public String getCode() { return null; }
+        public String getMessage(Locale locale) { return exception.toString(); }
+    }
+}
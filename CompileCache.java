@@ -0,0 +1,209 @@
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.nio.file.StandardCopyOption.*;
+
+/**
+ * Remembers what successful compiles produced, so that the same files are
+ * never compiled twice, not even after the tool was restarted.
+ *
+ * An entry is found by a SHA-256 hash of the files in the build folder
+ * that the compile uses (the student's source code and the files from the
+ * assignment folder, without the test cases and their results) and a
+ * description of the compiler. It is a folder
+ * named after the hash, with the files the compile created (class files or
+ * a.out, with their package folders) and a "log" file with the lines it
+ * logged. Entries are written to
+ * a temporary folder first and then renamed, so a half written entry is
+ * never found, and two threads compiling the same files do not clash.
+ *
+ * The cache is kept between sessions, so it is trimmed by trim() when a
+ * session starts: entries that were not used for MAX_AGE_DAYS are removed,
+ * then the least recently used ones until it is smaller than MAX_SIZE.
+ * They can be set with the system properties "gradingtool.compileCacheDays"
+ * and "gradingtool.compileCacheSize" (bytes).
+ */
+class CompileCache {
+    static final String FOLDER_NAME = "compile-cache";
+
+    private static final String FILES_FOLDER_NAME = "files";
+    private static final String LOG_FILE_NAME = "log";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String OLD_SUFFIX = ".old";
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    static final long MAX_AGE_DAYS = Long.getLong("gradingtool.compileCacheDays", 30);
+    static final long MAX_SIZE = Long.getLong("gradingtool.compileCacheSize", 512L * 1024 * 1024);
+
+    private final File root;
+
+    CompileCache(File root) {
+        this.root = root;
+    }
+
+    /**
+     * A compile that was done before.
+     */
+    static class Entry {
+        private final File folder;
+        private final List<String> log;
+
+        Entry(File folder, List<String> log) {
+            this.folder = folder;
+            this.log = log;
+        }
+
+        List<String> getLog() {
+            return log;
+        }
+
+        /**
+         * Put the files the compile created into the build folder. If that
+         * fails, the files that were restored are removed again, so the
+         * folder can still be compiled.
+         */
+        void restore(File buildFolder) throws IOException {
+            File filesFolder = new File(folder, FILES_FOLDER_NAME);
+            if (!filesFolder.isDirectory())
+                throw new IOException("The compile cache entry was removed: " + folder.getName());
+
+            Set<String> namesBefore = new HashSet<String>(Arrays.asList(buildFolder.list()));
+            Set<String> before = new HashSet<String>(FileUtil.listFiles(buildFolder));
+            try {
+                FileUtil.copyFolder(filesFolder, buildFolder);
+            } catch (IOException e) {
+                for (File f : buildFolder.listFiles()) {
+                    if (!namesBefore.contains(f.getName())) {
+                        FileUtil.recursivelyDeleteFile(f);
+                        f.delete();
+                    }
+                }
+                for (String path : FileUtil.listFiles(buildFolder))
+                    if (!before.contains(path))
+                        new File(buildFolder, path).delete();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Hash the names and contents of the files a compile uses, together
+     * with the description of the compiler.
+     */
+    String computeKey(File[] files, String compilerDescription) throws IOException {
+        return FileUtil.hashFiles(files, compilerDescription);
+    }
+
+    // The entry for the key, or null if these files were not compiled before.
+    Entry lookup(String key) throws IOException {
+        File folder = new File(root, key);
+        File logFile = new File(folder, LOG_FILE_NAME);
+        if (!logFile.exists())
+            return null;
+
+        // The time of the log is when the entry was last used, see trim().
+        logFile.setLastModified(System.currentTimeMillis());
+        return new Entry(folder, Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Keep the files a compile created in the build folder.
+     *
+     * @param filesBefore Paths of the files that were in the folder before compiling, see FileUtil.listFiles().
+     */
+    void store(String key, File buildFolder, List<String> filesBefore, List<String> log) {
+        File folder = new File(root, key);
+        if (folder.exists())
+            return;
+
+        Set<String> before = new HashSet<String>(filesBefore);
+        File temp = new File(root, key + "-" + Thread.currentThread().getId() + TEMP_SUFFIX);
+        try {
+            File filesFolder = new File(temp, FILES_FOLDER_NAME);
+            filesFolder.mkdirs();
+            for (String path : FileUtil.listFiles(buildFolder)) {
+                if (before.contains(path))
+                    continue;
+                File target = new File(filesFolder, path);
+                target.getParentFile().mkdirs();
+                Files.copy(new File(buildFolder, path).toPath(), target.toPath(), REPLACE_EXISTING, COPY_ATTRIBUTES);
+            }
+            Files.write(new File(temp, LOG_FILE_NAME).toPath(), log, StandardCharsets.UTF_8);
+
+            try {
+                Files.move(temp.toPath(), folder.toPath(), ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), folder.toPath());
+            }
+        } catch (IOException e) {
+            // Somebody else stored it first, or we cannot write. Either way it just is not cached.
+        } finally {
+            if (temp.exists()) {
+                FileUtil.recursivelyDeleteFile(temp);
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Remove the entries that were not used for a long time, and the least
+     * recently used ones while the cache is too big. Also removes what was
+     * left of entries that were being written or removed.
+     */
+    void trim() {
+        File[] folders = root.listFiles();
+        if (folders == null)
+            return;
+
+        List<File> entries = new ArrayList<File>();
+        for (File f : folders) {
+            if (!f.isDirectory())
+                continue;
+            // A temporary folder of a day ago is not being written any more.
+            if (f.getName().endsWith(OLD_SUFFIX) || (f.getName().endsWith(TEMP_SUFFIX)
+                    && System.currentTimeMillis() - f.lastModified() > DAY_MS))
+                remove(f);
+            else if (!f.getName().endsWith(TEMP_SUFFIX))
+                entries.add(f);
+        }
+
+        // The most recently used first.
+        Collections.sort(entries, new Comparator<File>() {
+            public int compare(File a, File b) {
+                return Long.compare(new File(b, LOG_FILE_NAME).lastModified(), new File(a, LOG_FILE_NAME).lastModified());
+            }
+        });
+
+        long oldest = System.currentTimeMillis() - MAX_AGE_DAYS * DAY_MS;
+        long size = 0;
+        for (File entry : entries) {
+            long entrySize = FileUtil.getSize(entry);
+            if (new File(entry, LOG_FILE_NAME).lastModified() < oldest || size + entrySize > MAX_SIZE)
+                remove(entry);
+            else
+                size += entrySize;
+        }
+    }
+
+    // Rename the entry first, so it is never found half removed.
+    private void remove(File entry) {
+        File old = entry;
+        if (!entry.getName().endsWith(OLD_SUFFIX)) {
+            old = new File(root, entry.getName() + OLD_SUFFIX);
+            if (!entry.renameTo(old))
+                return;
+        }
+        FileUtil.recursivelyDeleteFile(old);
+        old.delete();
+    }
+}
@@ -0,0 +1,175 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Knows which files of an assignment folder the result of each test case
+ * depends on, so that a change to one file only reruns the test cases
+ * that use it.
+ *
+ * * "TestCase3" and its result files, like "TestCase3Result" and
+ *   "TestCase3Result.out", only matter to test case 3.
+ * * A data file whose name shows up in a test case, as an argument or as
+ *   an input line, only matters to the test cases that name it.
+ * * Everything else, like provided source code or a "sources" file, is
+ *   part of the program and matters to every test case.
+ *
+ * CommonIssues.txt matters to none of them.
+ *
+ * Reading the test cases for every test run would be slow, so one tracker
+ * is kept per assignment folder, with the hashes it made, see get(). It is
+ * made again only when a file of the folder was added, removed or changed.
+ */
+class DependencyTracker {
+    private static final Pattern TEST_CASE_PATTERN = Pattern.compile("TestCase\\d*");
+
+    // The trackers by assignment folder. Guarded by the class.
+    private static final Map<File, DependencyTracker> trackers = new HashMap<File, DependencyTracker>();
+
+    private final File assignmentFolder;
+    private final String signature;
+    private final List<String> testCaseNames = new ArrayList<String>();
+
+    // The data files each test case names.
+    private final Map<String, Set<String>> dataFiles = new HashMap<String, Set<String>>();
+    private final Set<String> allDataFiles = new HashSet<String>();
+
+    // The hashes made so far, by test case. Guarded by this.
+    private final Map<String, String> testCaseHashes = new HashMap<String, String>();
+    private final Map<String, String> resultHashes = new HashMap<String, String>();
+
+    /**
+     * The tracker of an assignment folder, made again if the files of the
+     * folder have changed since it was last made.
+     */
+    static synchronized DependencyTracker get(File assignmentFolder) {
+        File[] files = listFiles(assignmentFolder);
+        String signature = getSignature(files);
+        DependencyTracker tracker = trackers.get(assignmentFolder);
+        if (tracker == null || !tracker.signature.equals(signature)) {
+            tracker = new DependencyTracker(assignmentFolder, files, signature);
+            trackers.put(assignmentFolder, tracker);
+        }
+        return tracker;
+    }
+
+    private DependencyTracker(File assignmentFolder, File[] files, String signature) {
+        this.assignmentFolder = assignmentFolder;
+        this.signature = signature;
+
+        Set<String> candidates = new HashSet<String>();
+        for (File f : files) {
+            if (!f.isFile())
+                continue;
+            if (TEST_CASE_PATTERN.matcher(f.getName()).matches())
+                testCaseNames.add(f.getName());
+            else if (!isTestCaseFile(f.getName()) && !f.getName().equals(SubmissionTester.FILE_NAME_COMMON_ISSUES))
+                candidates.add(f.getName());
+        }
+
+        for (String testCaseName : testCaseNames) {
+            Set<String> names = new HashSet<String>();
+            try {
+                for (String line : Files.readAllLines(new File(assignmentFolder, testCaseName).toPath(), StandardCharsets.UTF_8))
+                    for (String token : line.trim().split("\\s+"))
+                        if (candidates.contains(token))
+                            names.add(token);
+            } catch (IOException e) {}
+            dataFiles.put(testCaseName, names);
+            allDataFiles.addAll(names);
+        }
+    }
+
+    private static File[] listFiles(File assignmentFolder) {
+        File[] files = assignmentFolder.listFiles();
+        if (files == null)
+            files = new File[0];
+        Arrays.sort(files);
+        return files;
+    }
+
+    // The names, sizes and times of the files, which change when a file is edited.
+    private static String getSignature(File[] files) {
+        StringBuilder sb = new StringBuilder();
+        for (File f : files)
+            sb.append(f.getName()).append('/').append(f.length()).append('/').append(f.lastModified()).append('\n');
+        return sb.toString();
+    }
+
+    // Test case files and their result files.
+    static boolean isTestCaseFile(String name) {
+        return Pattern.matches("TestCase\\d*(" + SubmissionTester.TEST_CASE_RESULT_FILE_NAME_SUFFIX + ".*)?", name);
+    }
+
+    List<String> getTestCaseNames() {
+        return testCaseNames;
+    }
+
+    /**
+     * Does the file belong to one or more test cases, rather than to the
+     * program? Those files are left out of the hash of the program.
+     */
+    boolean belongsToTestCases(String name) {
+        return isTestCaseFile(name) || allDataFiles.contains(name);
+    }
+
+    /**
+     * A hash of the files that matter to every test case, like provided
+     * source code. Test cases, their result and data files, and
+     * CommonIssues.txt are left out.
+     */
+    String hashProgramFiles() throws IOException {
+        List<File> files = new ArrayList<File>();
+        for (File f : listFiles(assignmentFolder))
+            if (f.isFile() && !belongsToTestCases(f.getName()) && !f.getName().equals(SubmissionTester.FILE_NAME_COMMON_ISSUES))
+                files.add(f);
+        return FileUtil.hashFiles(files.toArray(new File[files.size()]), "");
+    }
+
+    /**
+     * A hash of the test case file and the data files it names.
+     */
+    synchronized String hashTestCase(String testCaseName) throws IOException {
+        String hash = testCaseHashes.get(testCaseName);
+        if (hash != null)
+            return hash;
+
+        List<File> files = new ArrayList<File>();
+        files.add(new File(assignmentFolder, testCaseName));
+        Set<String> names = dataFiles.get(testCaseName);
+        if (names != null)
+            for (String name : names)
+                files.add(new File(assignmentFolder, name));
+        hash = FileUtil.hashFiles(files.toArray(new File[files.size()]), testCaseName);
+        testCaseHashes.put(testCaseName, hash);
+        return hash;
+    }
+
+    /**
+     * A hash of the result files of the test case, there may be none.
+     */
+    synchronized String hashResultFiles(final String testCaseName) throws IOException {
+        String hash = resultHashes.get(testCaseName);
+        if (hash != null)
+            return hash;
+
+        File[] files = assignmentFolder.listFiles(new FileFilter() {
+            public boolean accept(File f) {
+                return f.getName().startsWith(testCaseName + SubmissionTester.TEST_CASE_RESULT_FILE_NAME_SUFFIX);
+            }
+        });
+        if (files == null)
+            throw new IOException("Cannot list " + assignmentFolder);
+        hash = FileUtil.hashFiles(files, testCaseName);
+        resultHashes.put(testCaseName, hash);
+        return hash;
+    }
+}
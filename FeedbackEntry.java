@@ -0,0 +1,118 @@
+/**
+ * One line of feedback, as the "Add / Save" button writes it:
+ *
+ * "-1 Circle.getArea() Lines: 12~15, 20. Wrong formula."
+ *
+ * That is the points, the location (a class, or a class and a method),
+ * the lines if any were selected, and the content. The line is kept as it
+ * was written, so a feedback file is saved back exactly as it was read,
+ * even lines that do not follow the format.
+ */
+class FeedbackEntry {
+    private final String text;
+    private final String points;
+    private final double pointValue;
+    private final String location;
+    private final String lines;
+    private final String content;
+
+    /**
+     * A new entry, from the fields of the feedback panel.
+     *
+     * @param lines "Line: 3" or "Lines: 3~5, 8", empty if no lines were selected.
+     */
+    FeedbackEntry(String points, String location, String lines, String content) {
+        this(points + " " + location + " " + (lines.length() > 0 ? lines + ". " : "") + content);
+    }
+
+    /**
+     * An entry read from a line of feedback.
+     */
+    FeedbackEntry(String text) {
+        this.text = text;
+
+        String line = text.trim();
+        int space1 = line.indexOf(" ");
+        int space2 = space1 < 0 ? -1 : line.indexOf(" ", space1 + 1);
+        double value = 0;
+        if (space1 >= 0) {
+            try {
+                value = Double.parseDouble(line.substring(0, space1));
+            } catch (NumberFormatException e) {}
+        }
+        pointValue = value;
+
+        if (space1 < 0) {
+            points = line;
+            location = "";
+            content = "";
+        }
+        else if (space2 < 0) {
+            points = line.substring(0, space1);
+            location = line.substring(space1 + 1);
+            content = "";
+        }
+        else {
+            points = line.substring(0, space1);
+            location = line.substring(space1 + 1, space2);
+            content = line.substring(space2 + 1);
+        }
+
+        // "Line: 3. " or "Lines: 3~5, 8. " at the start of the content.
+        int end = content.indexOf(". ");
+        if ((content.startsWith("Line: ") || content.startsWith("Lines: ")) && end >= 0)
+            lines = content.substring(0, end);
+        else
+            lines = "";
+    }
+
+    // The line as it was written.
+    String getText() {
+        return text;
+    }
+
+    boolean isBlank() {
+        return text.trim().length() == 0;
+    }
+
+    // The points as they were written, like "-0.5" or "*".
+    String getPoints() {
+        return points;
+    }
+
+    // The points as a number, 0 if they are not one.
+    double getPointValue() {
+        return pointValue;
+    }
+
+    String getLocation() {
+        return location;
+    }
+
+    // "Line: 3" or "Lines: 3~5, 8", empty if the entry has no lines.
+    String getLines() {
+        return lines;
+    }
+
+    // Everything after the location, the lines included.
+    String getContent() {
+        return content;
+    }
+
+    // The class of the location, feedback is grouped by it.
+    String getClassName() {
+        int index = location.indexOf(".");
+        return index >= 0 ? location.substring(0, index) : location;
+    }
+
+    /**
+     * The entry as it is listed under its class in the formatted feedback,
+     * with the method in front of the content.
+     */
+    String format() {
+        int index = location.indexOf(".");
+        if (index >= 0)
+            return points + " " + location.substring(index + 1) + ". " + content;
+        return points + " " + content;
+    }
+}
@@ -0,0 +1,290 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves feedback without making the GUI wait for the disk.
+ *
+ * Changes to a student's "feedback.txt" are first appended to a journal
+ * next to it, "feedback.txt.journal", by a background thread. Changes made
+ * within FLUSH_DELAY_MS of each other are written together. Once the
+ * journal has more than COMPACT_AFTER records, or when another student is
+ * opened, the feedback is written to a temporary file that then replaces
+ * "feedback.txt" in one move, and the journal is deleted. A crash can
+ * therefore never leave a half written "feedback.txt".
+ *
+ * A journal starts with all of the feedback at that time, so it does not
+ * matter whether "feedback.txt" was already replaced when it is read.
+ * The records are
+ *
+ * "+ <line>"                  a line was added to the end, and
+ * "= <length>" and the text   the whole feedback was replaced.
+ *
+ * A record that was cut short by a crash is ignored when the journal is
+ * read, see read().
+ */
+class FeedbackJournal {
+    static final String FILE_NAME_SUFFIX = ".journal";
+    private static final String TEMP_FILE_NAME_SUFFIX = ".tmp";
+
+    private static final long FLUSH_DELAY_MS = 500;
+    private static final int COMPACT_AFTER = 50;
+
+    private final SubmissionTester.Log logger;
+    private final ScheduledExecutorService executor;
+
+    // Records not written yet, by feedback file. Guarded by itself.
+    private final Map<File, Records> pending = new LinkedHashMap<File, Records>();
+
+    // Records in each journal, only used by the background thread.
+    private final Map<File, Integer> recordCounts = new LinkedHashMap<File, Integer>();
+
+    private static class Records {
+        final StringBuilder text = new StringBuilder();
+        int count;
+    }
+
+    FeedbackJournal(SubmissionTester.Log logger) {
+        this.logger = logger;
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "FeedbackJournal");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // What is still pending when the window is closed.
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                flushAll();
+            }
+        });
+    }
+
+    // A line was added to the end of the feedback.
+    void append(File feedbackFile, String line) {
+        addRecord(feedbackFile, "+ " + line + "\n");
+    }
+
+    // The feedback was changed in some other way, it is all written again.
+    void replace(File feedbackFile, String text) {
+        addRecord(feedbackFile, formatReplace(text));
+    }
+
+    private void addRecord(final File feedbackFile, String record) {
+        synchronized (pending) {
+            Records records = pending.get(feedbackFile);
+            boolean bScheduled = records != null;
+            if (!bScheduled) {
+                records = new Records();
+                pending.put(feedbackFile, records);
+            }
+            records.text.append(record);
+            records.count++;
+
+            // A flush is already on its way, it will take this record, too.
+            if (bScheduled)
+                return;
+        }
+
+        executor.schedule(new Runnable() {
+            public void run() {
+                flush(feedbackFile);
+            }
+        }, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The feedback of a student, with whatever the journal has on top of
+     * "feedback.txt". Waits until what was saved before is written.
+     *
+     * A journal left by a crash is written back to "feedback.txt" first,
+     * so new records never follow one that was cut short.
+     */
+    String load(final File feedbackFile) {
+        try {
+            return executor.submit(new Callable<String>() {
+                public String call() {
+                    flush(feedbackFile);
+                    if (new File(feedbackFile.getPath() + FILE_NAME_SUFFIX).exists())
+                        compact(feedbackFile);
+                    return read(feedbackFile);
+                }
+            }).get();
+        } catch (Exception e) {
+            return read(feedbackFile);
+        }
+    }
+
+    // The student is no longer shown, write their journal back to "feedback.txt".
+    void close(final File feedbackFile) {
+        executor.execute(new Runnable() {
+            public void run() {
+                flush(feedbackFile);
+                if (new File(feedbackFile.getPath() + FILE_NAME_SUFFIX).exists())
+                    compact(feedbackFile);
+            }
+        });
+    }
+
+    private void flushAll() {
+        File[] files;
+        synchronized (pending) {
+            files = pending.keySet().toArray(new File[0]);
+        }
+        for (File f : files)
+            flush(f);
+    }
+
+    // Append the pending records of a file to its journal. Called by both threads, one at a time.
+    private synchronized void flush(File feedbackFile) {
+        Records records;
+        synchronized (pending) {
+            records = pending.remove(feedbackFile);
+        }
+        if (records == null)
+            return;
+
+        File journal = new File(feedbackFile.getPath() + FILE_NAME_SUFFIX);
+        Integer count = recordCounts.get(feedbackFile);
+        if (count == null || !journal.exists()) {
+            // A new journal starts with what is in "feedback.txt" now.
+            count = 0;
+            if (!journal.exists() || journal.length() == 0)
+                records.text.insert(0, formatReplace(readText(feedbackFile)));
+        }
+
+        try {
+            FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                long size = channel.size();
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(records.text.toString().getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining())
+                        channel.write(buffer, size + buffer.position());
+                    channel.force(false);
+                } catch (IOException e) {
+                    // Do not leave half a record in front of the next ones.
+                    channel.truncate(size);
+                    throw e;
+                }
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            logger.log("Failed to save feedback to " + journal.getPath() + ": " + e);
+
+            // Keep the records for the next flush.
+            synchronized (pending) {
+                Records newer = pending.put(feedbackFile, records);
+                if (newer != null) {
+                    records.text.append(newer.text);
+                    records.count += newer.count;
+                }
+            }
+            return;
+        }
+
+        count += records.count;
+        recordCounts.put(feedbackFile, count);
+        if (count > COMPACT_AFTER)
+            compact(feedbackFile);
+    }
+
+    // Replace "feedback.txt" with what the journal has, then drop the journal.
+    private synchronized void compact(File feedbackFile) {
+        File journal = new File(feedbackFile.getPath() + FILE_NAME_SUFFIX);
+        File temp = new File(feedbackFile.getPath() + TEMP_FILE_NAME_SUFFIX);
+        try {
+            FileChannel channel = FileChannel.open(temp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(read(feedbackFile).getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+
+            try {
+                Files.move(temp.toPath(), feedbackFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), feedbackFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.deleteIfExists(journal.toPath());
+            recordCounts.remove(feedbackFile);
+        } catch (IOException e) {
+            // The journal is kept, nothing is lost.
+            logger.log("Failed to save feedback to " + feedbackFile.getPath() + ": " + e);
+        }
+    }
+
+    /**
+     * The feedback in "feedback.txt" with its journal applied, without
+     * records that were cut short. Does not wait for pending records, see
+     * load() for that.
+     */
+    static String read(File feedbackFile) {
+        StringBuilder text = new StringBuilder(readText(feedbackFile));
+        String journal = readText(new File(feedbackFile.getPath() + FILE_NAME_SUFFIX));
+
+        int position = 0;
+        while (position < journal.length()) {
+            int end = journal.indexOf('\n', position);
+            if (end < 0)
+                break; // Cut short
+
+            if (journal.startsWith("+ ", position)) {
+                if (text.length() > 0 && text.charAt(text.length() - 1) != '\n')
+                    text.append('\n');
+                text.append(journal, position + 2, end).append('\n');
+                position = end + 1;
+            }
+            else if (journal.startsWith("= ", position)) {
+                int length;
+                try {
+                    length = Integer.parseInt(journal.substring(position + 2, end));
+                } catch (NumberFormatException e) {
+                    break;
+                }
+                // The text, and the line break that ends the record.
+                if (end + 1 + length >= journal.length() || journal.charAt(end + 1 + length) != '\n')
+                    break; // Cut short
+                text.setLength(0);
+                text.append(journal, end + 1, end + 1 + length);
+                position = end + 1 + length + 1;
+            }
+            else {
+                break;
+            }
+        }
+        return text.toString();
+    }
+
+    private static String formatReplace(String text) {
+        return "= " + text.length() + "\n" + text + "\n";
+    }
+
+    // The whole file, empty if it does not exist.
+    private static String readText(File file) {
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+}
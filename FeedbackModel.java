@@ -0,0 +1,130 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The feedback of one student as entries, with the total of their points
+ * and the entries of each class kept up to date as entries are added, so
+ * adding one does not parse all of them again, and the feedback can be
+ * formatted in one pass.
+ *
+ * The feedback area can still be edited by hand, GradingTool gives the
+ * model the whole text again after that, see setText().
+ */
+class FeedbackModel {
+    /**
+     * The blank lines of the formatted feedback: after every entry, only
+     * around the classes, or none.
+     */
+    enum Spacing {All, Class, Off};
+
+    private final List<FeedbackEntry> entries = new ArrayList<FeedbackEntry>();
+    private double total = 0;
+
+    // The entries of each class, the classes in the order they first show up.
+    private final Map<String, List<FeedbackEntry>> groups = new LinkedHashMap<String, List<FeedbackEntry>>();
+
+    /**
+     * Start over from the text of the feedback area or a feedback file. A
+     * line break at the end does not make an entry.
+     */
+    void setText(String text) {
+        String[] lines = text.split("\\r?\\n", -1);
+        int count = lines.length;
+        if (count > 0 && lines[count - 1].length() == 0)
+            count--;
+
+        clear();
+        for (int i = 0; i < count; i++)
+            add(new FeedbackEntry(lines[i]));
+    }
+
+    void clear() {
+        entries.clear();
+        groups.clear();
+        total = 0;
+    }
+
+    void add(FeedbackEntry entry) {
+        entries.add(entry);
+        total += entry.getPointValue();
+        if (entry.isBlank())
+            return;
+
+        List<FeedbackEntry> group = groups.get(entry.getClassName());
+        if (group == null) {
+            group = new ArrayList<FeedbackEntry>();
+            groups.put(entry.getClassName(), group);
+        }
+        group.add(entry);
+    }
+
+    /**
+     * The text to save, one line per entry, each line as it was written.
+     */
+    String getText() {
+        StringBuilder sb = new StringBuilder();
+        for (FeedbackEntry entry : entries)
+            sb.append(entry.getText()).append("\n");
+        return sb.toString();
+    }
+
+    List<FeedbackEntry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    // The sum of the points of all entries, without the full points.
+    double getTotal() {
+        return total;
+    }
+
+    /**
+     * The feedback as it is copied to Blackboard, with all the entries of
+     * a class together under its name, the classes in the order they first
+     * show up.
+     */
+    List<String> format(SubmissionType submissionType, Spacing spacing) {
+        List<String> lines = new ArrayList<String>();
+        switch (submissionType) {
+            case SecondChance:
+                lines.add("================");
+                lines.add("Second chance:");
+                break;
+            case Late:
+                lines.add("Late submission:");
+                break;
+            default:
+                break;
+        }
+
+        for (Map.Entry<String, List<FeedbackEntry>> group : groups.entrySet()) {
+            // No second blank line after the blank line of the last entry.
+            int size = lines.size();
+            if (spacing != Spacing.Off && !(size >= 2 && lines.get(size - 1).length() == 0))
+                lines.add("");
+            lines.add(group.getKey());
+            if (spacing != Spacing.Off)
+                lines.add("");
+            for (FeedbackEntry entry : group.getValue()) {
+                lines.add(entry.format());
+                if (spacing == Spacing.All)
+                    lines.add("");
+            }
+        }
+        return lines;
+    }
+
+    // The total line, with the factor of a late or second chance submission.
+    static String formatTotal(double points, double factor) {
+        if (factor == 1)
+            return "Total = " + points;
+        return "Total = " + points + " x " + factor + " = " + points * factor;
+    }
+
+    // The entries that are not blank, by class.
+    Map<String, List<FeedbackEntry>> getGroups() {
+        return Collections.unmodifiableMap(groups);
+    }
+}
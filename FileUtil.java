@@ -0,0 +1,194 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static java.nio.file.StandardCopyOption.*;
+
+/**
+ * File helpers shared by the GUI and the headless grading code.
+ */
+class FileUtil {
+    private FileUtil() {}
+
+    static void writeFile(String pathName, String content) {
+        FileWriter fw = null;
+        BufferedWriter bw = null;
+        try {
+            fw = new FileWriter(pathName);
+            bw = new BufferedWriter(fw);
+            bw.write(content);
+        }
+        catch (IOException e) {}
+        finally {
+            try {
+                if (bw != null) bw.close();
+                if (fw != null) fw.close();
+            } catch (IOException e) {}
+        }
+    }
+
+    static List<String> readFile(String pathName) {
+        System.out.println("Reading file: " + pathName);
+
+        Path path = Paths.get(pathName);
+        if (!Files.exists(path))
+            return new ArrayList<String>();
+
+        List<String> inputLines = null;
+        try {
+            inputLines = Files.readAllLines(path, StandardCharsets.UTF_8);
+
+            /**
+             * Try other encodings, this part is not working very well
+             *
+             * Some international students have their computers setup in other
+             * languages, and they would save their source code in non-standard
+             * encodings, and resulting in compiling errors on other computers.
+             */
+            if (inputLines == null)
+                inputLines = Files.readAllLines(path, StandardCharsets.ISO_8859_1);
+            if (inputLines == null)
+                inputLines = Files.readAllLines(path, StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            System.out.println("Failed to read file: " + pathName);
+            System.out.println(e);
+        }
+
+        if (inputLines == null)
+            return new ArrayList<String>(); // Do not return null
+        else
+            return inputLines;
+    }
+
+    /**
+     * The whole file as one String, empty if it cannot be read. Bytes that
+     * are not UTF-8 are replaced instead of failing.
+     */
+    static String readText(String pathName) {
+        System.out.println("Reading file: " + pathName);
+
+        try {
+            return new String(Files.readAllBytes(Paths.get(pathName)), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.out.println("Failed to read file: " + pathName);
+            System.out.println(e);
+            return "";
+        }
+    }
+
+    /**
+     * A SHA-256 hash of some text and the names and contents of some files,
+     * in the order of their names. Folders are skipped.
+     *
+     * @return The hash as a hex string.
+     */
+    static String hashFiles(File[] files, String text) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte)0);
+
+        files = files.clone();
+        Arrays.sort(files);
+
+        byte[] buffer = new byte[8192];
+        for (File f : files) {
+            if (!f.isFile())
+                continue;
+
+            digest.update(f.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte)0);
+            InputStream in = new FileInputStream(f);
+            try {
+                int count;
+                while ((count = in.read(buffer)) >= 0)
+                    digest.update(buffer, 0, count);
+            } finally {
+                in.close();
+            }
+            digest.update((byte)0);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest())
+            sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+
+    /**
+     * Copy everything in a folder, with the folders in it, like the package
+     * folders of class files. Files that are there already are replaced.
+     */
+    static void copyFolder(File from, File to) throws IOException {
+        File[] files = from.listFiles();
+        if (files == null)
+            throw new IOException("Cannot list " + from);
+
+        to.mkdirs();
+        for (File f : files) {
+            File target = new File(to, f.getName());
+            if (f.isDirectory())
+                copyFolder(f, target);
+            else
+                Files.copy(f.toPath(), target.toPath(), REPLACE_EXISTING, COPY_ATTRIBUTES);
+        }
+    }
+
+    /**
+     * The paths of all the files in a folder and the folders in it,
+     * relative to the folder, like "Main.class" and "shapes/Circle.class".
+     */
+    static List<String> listFiles(File folder) {
+        List<String> paths = new ArrayList<String>();
+        listFiles(folder, "", paths);
+        return paths;
+    }
+
+    private static void listFiles(File folder, String prefix, List<String> paths) {
+        File[] files = folder.listFiles();
+        if (files == null)
+            return;
+        for (File f : files) {
+            if (f.isDirectory())
+                listFiles(f, prefix + f.getName() + File.separator, paths);
+            else
+                paths.add(prefix + f.getName());
+        }
+    }
+
+    static void recursivelyDeleteFile(File target) {
+        File[] files = target.listFiles();
+        if (files == null)
+            return;
+
+        for(File f : files) {
+            if (f.isDirectory())
+                recursivelyDeleteFile(f);
+            f.delete();
+        }
+    }
+
+    // The number of bytes in a file, or in all the files in a folder.
+    static long getSize(File target) {
+        File[] files = target.listFiles();
+        if (files == null)
+            return target.length();
+
+        long size = 0;
+        for (File f : files)
+            size += getSize(f);
+        return size;
+    }
+}
@@ -0,0 +1,181 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * Compares an output file with an expected one without reading them into
+ * lists of Strings, for assignments whose programs write big files, like
+ * the .out and .words files of 2240 A4.
+ *
+ * Both files are memory mapped a chunk at a time and compared line by
+ * line as bytes, ignoring leading and trailing spaces like verifyOutput()
+ * in SubmissionTester does. Files with the same bytes are compared in one
+ * go. Lines end with "\n", a "\r" before it counts as a trailing space.
+ * Strings are only made for a window of lines from the first difference
+ * on, for the report.
+ */
+class FileVerifier {
+    private static final int CHUNK_SIZE = 64 * 1024 * 1024;
+
+    // Lines of each file kept as Strings from the first difference on.
+    static final int WINDOW_SIZE = 200;
+
+    /**
+     * What was found. If the files are not the same, the windows have the
+     * lines from firstDifference on, and the end of a window that was cut
+     * short can be out of step with the other one.
+     */
+    static class Result {
+        int expectedLineCount;
+        int actualLineCount;
+        int firstDifference = -1;
+        final List<String> expectedWindow = new ArrayList<String>();
+        final List<String> actualWindow = new ArrayList<String>();
+        boolean expectedWindowComplete; // The expected window goes to the end of the file.
+        boolean actualWindowComplete;
+
+        boolean isSame() {
+            return firstDifference < 0;
+        }
+    }
+
+    static Result compare(File actual, File expected) throws IOException {
+        Result result = new Result();
+        FileChannel actualChannel = FileChannel.open(actual.toPath(), StandardOpenOption.READ);
+        FileChannel expectedChannel = FileChannel.open(expected.toPath(), StandardOpenOption.READ);
+        try {
+            LineReader a = new LineReader(actualChannel);
+            LineReader e = new LineReader(expectedChannel);
+
+            if (a.size == e.size && sameBytes(actualChannel, expectedChannel, a.size)) {
+                // Nothing to normalize, only the lines are counted.
+                while (e.next())
+                    result.expectedLineCount++;
+                result.actualLineCount = result.expectedLineCount;
+                return result;
+            }
+
+            boolean bActual = a.next();
+            boolean bExpected = e.next();
+            while (bActual || bExpected) {
+                if (result.firstDifference < 0 && !(bActual && bExpected && a.sameLine(e)))
+                    result.firstDifference = result.actualLineCount;
+
+                if (bActual) {
+                    if (result.firstDifference >= 0 && result.actualWindow.size() < WINDOW_SIZE)
+                        result.actualWindow.add(a.getLine());
+                    result.actualLineCount++;
+                    bActual = a.next();
+                }
+                if (bExpected) {
+                    if (result.firstDifference >= 0 && result.expectedWindow.size() < WINDOW_SIZE)
+                        result.expectedWindow.add(e.getLine());
+                    result.expectedLineCount++;
+                    bExpected = e.next();
+                }
+            }
+            result.actualWindowComplete = result.actualLineCount - result.firstDifference <= WINDOW_SIZE;
+            result.expectedWindowComplete = result.expectedLineCount - result.firstDifference <= WINDOW_SIZE;
+        } finally {
+            actualChannel.close();
+            expectedChannel.close();
+        }
+        return result;
+    }
+
+    // Compare two files of the same size a chunk at a time.
+    private static boolean sameBytes(FileChannel a, FileChannel b, long size) throws IOException {
+        for (long position = 0; position < size; position += CHUNK_SIZE) {
+            long length = Math.min(CHUNK_SIZE, size - position);
+            // Buffers are equal when the bytes they have left are.
+            if (!a.map(FileChannel.MapMode.READ_ONLY, position, length)
+                    .equals(b.map(FileChannel.MapMode.READ_ONLY, position, length)))
+                return false;
+        }
+        return true;
+    }
+
+    // Goes through the lines of a file, mapping a chunk of it at a time.
+    private static class LineReader {
+        private final FileChannel channel;
+        final long size;
+
+        private MappedByteBuffer buffer;
+        private long bufferStart = 0;
+        private long position = 0; // Where the next line starts in the file.
+
+        // The current line in the buffer, without leading and trailing spaces.
+        private int lineStart;
+        private int lineEnd;
+
+        LineReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        // Move to the next line, false if there is none.
+        boolean next() throws IOException {
+            if (position >= size)
+                return false;
+
+            int chunk = CHUNK_SIZE;
+            while (true) {
+                if (buffer == null || position >= bufferStart + buffer.limit())
+                    map(position, chunk);
+
+                int start = (int)(position - bufferStart);
+                int end = start;
+                while (end < buffer.limit() && buffer.get(end) != '\n')
+                    end++;
+
+                // The line goes past what is mapped. Map from its start, and more if it is that long.
+                if (end == buffer.limit() && bufferStart + buffer.limit() < size) {
+                    if (start == 0)
+                        chunk = (int)Math.min((long)chunk * 2, Integer.MAX_VALUE);
+                    map(position, chunk);
+                    continue;
+                }
+
+                position = bufferStart + end + 1;
+                while (start < end && (buffer.get(start) & 0xff) <= ' ')
+                    start++;
+                while (end > start && (buffer.get(end - 1) & 0xff) <= ' ')
+                    end--;
+                lineStart = start;
+                lineEnd = end;
+                return true;
+            }
+        }
+
+        private void map(long start, int length) throws IOException {
+            bufferStart = start;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length, size - start));
+        }
+
+        boolean sameLine(LineReader other) {
+            if (lineEnd - lineStart != other.lineEnd - other.lineStart)
+                return false;
+            return getLineBuffer().equals(other.getLineBuffer());
+        }
+
+        // The current line as a String, without leading and trailing spaces.
+        String getLine() {
+            byte[] bytes = new byte[lineEnd - lineStart];
+            getLineBuffer().get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // The bytes of the current line, sharing the mapped buffer.
+        private ByteBuffer getLineBuffer() {
+            ByteBuffer line = buffer.duplicate();
+            line.limit(lineEnd);
+            line.position(lineStart);
+            return line;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports the grades of all the students of an assignment at once, instead
+ * of pressing "Format / Save" for one student at a time.
+ *
+ * To run it from the folder where GradingTool is:
+ *
+ * "java GradingTool -export CSCI-1620-5-S15-A2 10 8"
+ *
+ * The arguments are the submission folder, the full points, and
+ * optionally the number of workers, the default is the number of
+ * processors. The feedback of every student ("feedback.txt" and its
+ * journal) is read in parallel. The formatted feedback is written to
+ * "formatted-feedback.txt" in the student's folder, the way "Format /
+ * Save" shows it with the "CLASS" option, followed by the total. The
+ * total has the second chance or late factor of the folder applied.
+ *
+ * One line per student is written to a CSV file next to the submission
+ * folder, for example "CSCI-1620-5-S15-A2-gradebook.csv", in the order
+ * of the students, as soon as each one is done. Students without
+ * feedback have no points in it.
+ */
+class GradebookExport {
+    static final String FILE_NAME_FORMATTED_FEEDBACK = "formatted-feedback.txt";
+    static final String FILE_NAME_GRADEBOOK_SUFFIX = "-gradebook.csv";
+
+    private static final String FILE_NAME_FEEDBACK = "feedback.txt";
+    private static final String NEW_LINE = "\n";
+
+    private final File submissionFolder;
+    private final double fullPoints;
+    private final int workerCount;
+
+    private SubmissionType submissionType;
+    private double factor;
+
+    // The grade of one student.
+    private static class StudentGrade {
+        String name;
+        boolean graded;
+        int entryCount;
+        double points;
+        double total;
+    }
+
+    GradebookExport(File submissionFolder, double fullPoints, int workerCount) {
+        this.submissionFolder = submissionFolder;
+        this.fullPoints = fullPoints;
+        this.workerCount = workerCount;
+    }
+
+    static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java GradingTool -export <submission folder> <full points> [number of workers]");
+            return;
+        }
+
+        int workerCount = Runtime.getRuntime().availableProcessors();
+        if (args.length > 2)
+            workerCount = Integer.parseInt(args[2]);
+
+        GradebookExport export = new GradebookExport(new File(args[0]), Double.parseDouble(args[1]), workerCount);
+        if (!export.run())
+            System.exit(1);
+    }
+
+    /**
+     * Export all the students.
+     *
+     * @return false if the course cannot be recognized from the folder name,
+     *         or the gradebook cannot be written.
+     */
+    boolean run() {
+        String folderName = submissionFolder.getName();
+        Language language = SubmissionTester.getLanguage(SubmissionTester.parseCourseID(folderName));
+        if (language == null) {
+            System.out.println("Cannot find a known course in folder name: " + folderName);
+            return false;
+        }
+        submissionType = SubmissionTester.parseSubmissionType(folderName);
+        factor = SubmissionTester.getPointsFactor(submissionType, language);
+
+        File[] students = submissionFolder.listFiles(new FileFilter() {
+            public boolean accept(File f) {
+                return f.isDirectory();
+            }
+        });
+        if (students == null) {
+            System.out.println("Cannot open folder: " + submissionFolder.getAbsolutePath());
+            return false;
+        }
+        Arrays.sort(students);
+
+        long startTime = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        List<Future<StudentGrade>> futures = new ArrayList<Future<StudentGrade>>();
+        for (final File student : students) {
+            futures.add(executor.submit(new Callable<StudentGrade>() {
+                public StudentGrade call() {
+                    return export(student);
+                }
+            }));
+        }
+
+        File gradebook = new File(submissionFolder.getAbsoluteFile().getParentFile(), folderName + FILE_NAME_GRADEBOOK_SUFFIX);
+        int gradedCount = 0;
+        try {
+            Writer writer = Files.newBufferedWriter(gradebook.toPath(), StandardCharsets.UTF_8);
+            try {
+                writer.write("Student,Feedback lines,Points,Factor,Total" + NEW_LINE);
+                for (int i = 0; i < futures.size(); i++) {
+                    StudentGrade grade;
+                    try {
+                        grade = futures.get(i).get();
+                    } catch (Exception e) {
+                        System.out.println(students[i].getName() + ": " + e);
+                        grade = new StudentGrade();
+                        grade.name = students[i].getName();
+                    }
+
+                    writer.write(formatRow(grade));
+                    if (grade.graded)
+                        gradedCount++;
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to write " + gradebook.getPath() + ": " + e);
+            executor.shutdownNow();
+            return false;
+        }
+        executor.shutdown();
+
+        System.out.println("Exported " + gradedCount + " of " + students.length + " students to " + gradebook.getPath());
+        System.out.println("Done in " + (System.currentTimeMillis() - startTime) + " ms.");
+        return true;
+    }
+
+    // Read the feedback of one student and write it formatted.
+    private StudentGrade export(File student) {
+        StudentGrade grade = new StudentGrade();
+        grade.name = student.getName();
+
+        File feedbackFile = new File(student, FILE_NAME_FEEDBACK);
+        if (!feedbackFile.exists() && !new File(feedbackFile.getPath() + FeedbackJournal.FILE_NAME_SUFFIX).exists())
+            return grade;
+
+        FeedbackModel model = new FeedbackModel();
+        model.setText(FeedbackJournal.read(feedbackFile));
+        grade.graded = true;
+        grade.entryCount = countEntries(model);
+        grade.points = fullPoints + model.getTotal();
+        grade.total = grade.points * factor;
+
+        StringBuilder sb = new StringBuilder();
+        for (String line : model.format(submissionType, FeedbackModel.Spacing.Class))
+            sb.append(line).append(NEW_LINE);
+        sb.append(NEW_LINE).append(FeedbackModel.formatTotal(grade.points, factor)).append(NEW_LINE);
+        FileUtil.writeFile(new File(student, FILE_NAME_FORMATTED_FEEDBACK).getPath(), sb.toString());
+        return grade;
+    }
+
+    // The entries that are not blank.
+    private static int countEntries(FeedbackModel model) {
+        int count = 0;
+        for (List<FeedbackEntry> group : model.getGroups().values())
+            count += group.size();
+        return count;
+    }
+
+    private String formatRow(StudentGrade grade) {
+        if (!grade.graded)
+            return quote(grade.name) + ",0,,," + NEW_LINE;
+        return quote(grade.name) + "," + grade.entryCount + "," + grade.points + "," + factor + "," + grade.total + NEW_LINE;
+    }
+
+    // A CSV field, quoted if it has to be.
+    private static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0)
+            return field;
+        return "\"" + field.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -1,4 +1,81 @@
 /*
+--------------
+2026-10-18
+agent
+
+Run changed test cases again.
+
+When a test case, its result files or a data file it uses change while
+a folder is open, like a typo fixed in "TestCase3Result.out", the test
+cases that depend on them are run again for every student in the
+background, and the stored results are updated. See
+AssignmentWatcher.java.
+
+--------------
+2026-10-18
+agent
+
+Watch the opened folder.
+
+Students whose folders show up while grading, like late submissions,
+are added to the student list without opening the folder again, and
+removed ones are taken out. A student whose source code changed is
+compiled again in the background. See SubmissionWatcher.java.
+
+--------------
+2026-10-18
+agent
+
+Add gradebook export.
+
+"java GradingTool -export CSCI-1620-5-S15-A2 10 [workers]" formats the
+feedback of every student like "Format / Save" does, with the second
+chance and late factors, and writes all the totals to a CSV gradebook.
+See GradebookExport.java.
+
+--------------
+2026-10-18
+agent
+
+Add static checks.
+
+"java GradingTool -checks CSCI-1620-5-S15-A2 [workers]" runs the method
+doc check of the source code viewer on every method of every student,
+checks that every file has a header comment, and looks for student IDs
+outside the header, where privacy mode does not hide them. See
+StaticChecker.java.
+
+--------------
+2026-10-18
+agent
+
+Compile and test in the background.
+
+Compiling and running a test case no longer freeze the window. The
+output of a test shows up while it runs, the lines that came in since
+the window was last updated are added at once. The Cancel button stops
+a test with every process it started, and a compile the next time the
+compiler starts or finishes a step. The source code and the feedback can
+be worked on meanwhile, only the buttons that would start another
+compile or test are disabled.
+
+--------------
+2026-10-18
+agent
+
+Add batch mode.
+
+"java GradingTool -batch CSCI-1620-5-S15-A2 [workers]" compiles every
+student and runs every test case without the GUI, several students at a
+time. See BatchGrader.java.
+
+The compiling and testing code was moved from GradingTool to
+SubmissionTester so that both the GUI and the batch mode can use it.
+
+Every compile and every test run now has its own folder under "Temp",
+handed out by WorkspaceManager, instead of all of them sharing "Temp".
+Folders are deleted in the background once they are no longer needed.
+
 --------------
 2016-10-26
 Mai Ren
@@ -147,6 +224,22 @@ of points you want to remove or add(set to positive). Then click the
 Click "Format/Save" button to format feedback and show the resule in the 
 output area.
 
+To grade all submissions at once without the GUI, run:
+"java GradingTool -batch <folder> [workers]"
+A summary is printed at the end, and the output of every test case is
+saved to "batch-result.txt" in each student's folder.
+
+To check the method docs and file headers of all submissions, run:
+"java GradingTool -checks <folder> [workers]"
+The findings are saved to "static-checks.txt" in each student's folder
+as feedback lines, ready to be copied into the feedback area.
+
+To export the grades of all students at once, run:
+"java GradingTool -export <folder> <full points> [workers]"
+The formatted feedback and total of each student are saved to
+"formatted-feedback.txt" in their folder, and all the totals to a CSV
+file next to the submission folder.
+
 There is a privacy mode, in which userID and identifying info in the honor
 pledge will be replaced. After selecting privacy mode, reopen the
 assignment folder to update the student list.
@@ -182,42 +275,26 @@ Windows 8.1 Pro
 Ubuntu 14.10
 OSX 10.10
 
-Oracle JDK 8
+Oracle JDK 8, the tool itself needs Java 9 or later (ProcessHandle)
 */
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.regex.Pattern;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Scanner;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 import javax.swing.event.*;
-
-import static java.nio.file.StandardCopyOption.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 
 public class GradingTool extends JPanel implements ListSelectionListener, ActionListener {
     private static final long serialVersionUID = 1L;
     
-    // Currently we support just these two languages.
-    private enum Language {Java, C};
-    
-    private enum SubmissionType {Normal, SecondChance, Late};
-    
     private static final String FILE_NAME_FEEDBACK = "feedback.txt";
-    private static final String FILE_NAME_COMMON_ISSUES = "CommonIssues.txt";
     private static final String PROGRAM_NAME = "Grading Tool";
     private static final String TEMP_FOLDER_NAME = "Temp";
-    private static final String TEST_CASE_RESULT_FILE_NAME_SUFFIX = "Result";
-    private static final String CODE_TESTER_CLASS_NAME = "CodeTester";
-    private static final String CODE_TESTER_FAST_FOLDER_NAME = "CodeTester-old";
-    private static final String CODE_TESTER_ACCURATE_FOLDER_NAME = "CodeTester";
     private static final String DEFAULT_GRADING_LOCATION = "Others";
 
     private static final String NEW_LINE = "\n";
@@ -227,7 +304,7 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
 
     private JFrame frame;
     
-    JButton openButton, compileButton, testButton, addButton, saveButton, increaseFontSizeButton, decreaseFontSizeButton;
+    JButton openButton, compileButton, testButton, cancelButton, addButton, saveButton, increaseFontSizeButton, decreaseFontSizeButton;
     JRadioButton buttonPrivacyOn;
     JRadioButton buttonPrivacyOff;
     JRadioButton buttonFeedbackFormat1;
@@ -244,7 +321,10 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
     
     // Use a list to display source code
     private JList<String> scViewerList;
-    private DefaultListModel<String> scViewerListModel;
+    private SourceViewerModel scViewerModel;
+
+    // The structure of the file in the source code viewer, null if it shows a test case.
+    private SourceIndex sourceIndex;
 
     // Use a list to display test cases
     private JList<String> testCaseList;
@@ -260,6 +340,8 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
 
     JTextArea logTextArea;
     JTextArea outputTextArea;
+    // Log lines from other threads that are not in the output area yet. Guarded by itself.
+    private final StringBuilder pendingLog = new StringBuilder();
     JTextArea pointsTextArea;
     JTextArea feedbackLocationTextArea;// The method or class the feedback in feedbackContentTextArea is referring to.
     JTextArea feedbackLinesTextArea;// The lines the feedback in feedbackContentTextArea is referring to.
@@ -275,6 +357,16 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
     File[] testCaseNames;
     
     String feedbackFilePath = null;
+
+    // The entries of feedbackTextArea. It is set again from the text after the text was edited by hand.
+    private FeedbackModel feedbackModel = new FeedbackModel();
+    private boolean bFeedbackEdited = false;
+    private boolean bAddingFeedback = false;
+
+    // Saves feedbackModel in the background. The entries of feedbackModel
+    // already saved, -1 if the text was edited by hand and is saved whole.
+    private FeedbackJournal feedbackJournal;
+    private int savedEntryCount = 0;
     
     private int courseID = -1;
     private int assignmentNum = -1;
@@ -282,8 +374,28 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
     private Language language;
     private SubmissionType submissionType;
     
-    // If we are currently on Windows or not
-    private boolean m_bWindows = false;
+    // Compiles and tests submissions of the opened assignment, for the selected student.
+    private SubmissionTester tester;
+
+    // The tester compiling or running a test in the background, null if none is.
+    private SubmissionTester busyTester;
+
+    // Adds, updates and removes students while the folder is open.
+    private SubmissionWatcher watcher;
+    // Runs the test cases again for everyone when they change.
+    private AssignmentWatcher assignmentWatcher;
+    private int nextStudentID; // The privacy mode ID of the next student that shows up.
+    private boolean bUpdatingStudents = false;
+    
+    // Gives every compile and test run its own folder under Temp.
+    private final WorkspaceManager workspaces = new WorkspaceManager(new File(TEMP_FOLDER_NAME));
+    
+    // Runs Java tests in a JVM that is already warm. The GUI runs one test at a time.
+    // One worker for the grader, one for the prefetcher.
+    private final JavaWorkerPool workers = new JavaWorkerPool(new File(SubmissionTester.CODE_TESTER_ACCURATE_FOLDER_NAME), 2);
+
+    // Compiles the next students while the grader looks at the current one.
+    private final Prefetcher prefetcher = new Prefetcher();
     
     /**
      * Create the GUI and show it.  For thread safety,
@@ -306,6 +418,22 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
     }
 
     public static void main(String[] args) {
+        // "-batch" grades a whole assignment folder without the GUI.
+        if (args.length > 0 && args[0].equals("-batch")) {
+            BatchGrader.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // "-checks" checks the method docs and headers of a whole assignment folder.
+        if (args.length > 0 && args[0].equals("-checks")) {
+            StaticChecker.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // "-export" writes the grades and formatted feedback of a whole assignment folder.
+        if (args.length > 0 && args[0].equals("-export")) {
+            GradebookExport.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
         //Schedule a job for the event-dispatching thread:
         //creating and showing this application's GUI.
         javax.swing.SwingUtilities.invokeLater(new Runnable() {
@@ -319,6 +447,7 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
         super(new BorderLayout());
 
         this.frame = frame;
+        feedbackJournal = new FeedbackJournal(createLog());
         
         // Build GUI
         fc = new JFileChooser();
@@ -388,17 +517,26 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
         testCaseList.addMouseListener(new MouseAdapter(){
             @Override
             public void mouseClicked(MouseEvent e){
-                if(e.getClickCount() == 2){
+                if(e.getClickCount() == 2 && busyTester == null){
                     runSelectedTestCase();
                 }
             }
         });
         testPanel.add(new JScrollPane(testCaseList), BorderLayout.CENTER);
         
+        JPanel runPanel = new JPanel();
+        runPanel.setLayout(new GridLayout(1, 2));
+        testPanel.add(runPanel, BorderLayout.PAGE_END);
+
         testButton = new JButton("Test");
         testButton.setEnabled(false);
         testButton.addActionListener(this);
-        testPanel.add(testButton, BorderLayout.PAGE_END);
+        runPanel.add(testButton);
+
+        cancelButton = new JButton("Cancel");
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(this);
+        runPanel.add(cancelButton);
         
         JPanel pointsPanel = new JPanel();
         pointsPanel.setLayout(new BorderLayout());
@@ -464,6 +602,18 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
         feedbackTextArea.setBorder(BorderFactory.createEmptyBorder(0, 2, 0, 0)); 
         feedbackTextArea.setMargin(new Insets(5,5,5,5));
         bottomPanel.add(new JScrollPane(feedbackTextArea), BorderLayout.CENTER);
+        feedbackTextArea.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                feedbackChanged();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                feedbackChanged();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
         
         JPanel rightControlPanel = new JPanel();
         rightControlPanel.setLayout(new FlowLayout());
@@ -553,9 +703,9 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
         outputTextArea.setLineWrap(true);
         rightPanel.add(new JScrollPane(outputTextArea), BorderLayout.CENTER);
 
-        scViewerListModel = new DefaultListModel<String>();
-        scViewerListModel.addElement("Source code viewer");
-        scViewerList = new JList<String>(scViewerListModel);
+        scViewerModel = new SourceViewerModel();
+        scViewerModel.setMessage("Source code viewer");
+        scViewerList = new JList<String>(scViewerModel);
         scViewerList.setEnabled(false);
         // The default selection mode is multi interval.
         //scViewerList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -580,8 +730,16 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
         // Show current path
         log("Current path: " + System.getProperty("user.dir"));
         log("Current OS: " + System.getProperty("os.name"));
-        if (System.getProperty("os.name").toLowerCase().startsWith("windows"))
-            m_bWindows = true;
+        
+        // Remove our working folders and stop the workers when the tool is closed.
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                // The prefetcher first, it stops what it runs in the workers and workspaces.
+                prefetcher.shutdown();
+                workers.shutdown();
+                workspaces.shutdown();
+            }
+        });
         
         //listAllFonts();
         setFont();
@@ -604,6 +762,7 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
             int sizeAdjustment = fontSizeAdjustment / 2;
 
             scViewerList.setFont(new Font(font, fontStyle, DEFAULT_FONT_SIZE + sizeAdjustment));
+            scViewerList.setPrototypeCellValue(scViewerModel.getPrototype()); // Measure the rows again
             outputTextArea.setFont(new Font(font, fontStyle, DEFAULT_FONT_SIZE + sizeAdjustment));
             log("Font set to: " + font);
             return;
@@ -631,34 +790,9 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
             return false;
     }
     
-    /**
-     * Is the given file a source code file or not.
-     * @param fileName Absolute or relative path to a file.
-     * @return true if fileName is a source code file.
-     */
-    private boolean isSourceCodeFile(String fileName) {
-        fileName = fileName.toLowerCase();
-        
-        if (language == Language.Java) {
-            if (fileName.endsWith(".java"))
-                return true;
-        }
-        else if (language == Language.C) {
-            if (fileName.endsWith(".c") ||
-                fileName.endsWith(".h"))
-                return true;
-                
-            // For 2240 A3, 3 extra files are part of the submission.
-            if (courseID == 2240 && assignmentNum == 3 && fileName.startsWith("prog"))
-                return true;
-        }
-        
-        return false;
-    }
-    
     //This method is required by ListSelectionListener.
     public void valueChanged(ListSelectionEvent e) {
-        if (e.getValueIsAdjusting())
+        if (e.getValueIsAdjusting() || bUpdatingStudents)
             return;
         
         if (e.getSource() == studentList) {
@@ -678,114 +812,74 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
             int index = studentList.getSelectedIndex();
             if (index < 0) return;
             
+            // The previous student's compiled program is no longer needed.
+            tester.release();
+            List<String> compileLog = new ArrayList<String>();
+            SubmissionTester prefetched = prefetcher.take(folderNames[index].getName(), compileLog);
+            if (prefetched != null) {
+                // Compiled in the background, and the first test case was run, too.
+                tester = prefetched.withLog(createLog());
+                for (String line : compileLog)
+                    log(line);
+                log("Success!");
+                testButton.setEnabled(true);
+                testCaseList.setEnabled(true);
+            }
+            else {
+                tester = tester.forStudent(folderNames[index].getName());
+            }
+            prefetcher.select(tester, folderNames, index);
+            
             // Load file list
             if (index >= 0) {
-                fileNames = folderNames[index].listFiles();
-                Arrays.sort(fileNames);
-                
-                // Get a clean list, only source code files count.
-                int count = 0;
-                for (File f: fileNames) {
-                    if (f != null && isSourceCodeFile(f.getName()))
-                        count++;
-                }
-                File[] tmpList = new File[count];
-                count = 0;
-                for (File f: fileNames) {
-                    if (f != null && isSourceCodeFile(f.getName())) {
-                        tmpList[count] = f;
-                        fileListModel.addElement(f.getName());
-                        count++;
-                    }
-                }
-                fileNames = tmpList;
+                fileNames = tester.listSourceFiles(folderNames[index]);
+                for (File f: fileNames)
+                    fileListModel.addElement(f.getName());
             }
             
-            // Load feedback
-            feedbackTextArea.setText(null);
+            // Load feedback, the previous student's journal is written back to their feedback file.
+            if (feedbackFilePath != null)
+                feedbackJournal.close(new File(feedbackFilePath));
             feedbackFilePath = folderNames[index].getAbsolutePath() + File.separator + FILE_NAME_FEEDBACK;
             
-            List<String> inputLines = readFile(feedbackFilePath);
-            for (String line : inputLines)
-                feedbackTextArea.append(line + NEW_LINE);
+            feedbackModel.setText(feedbackJournal.load(new File(feedbackFilePath)));
+            bAddingFeedback = true;
+            feedbackTextArea.setText(feedbackModel.getText());
+            bAddingFeedback = false;
+            bFeedbackEdited = false;
+            savedEntryCount = feedbackModel.getEntries().size();
 
             calculatePoints();
         }
         else if (e.getSource() == fileList) {
-            scViewerListModel.clear();
+            scViewerModel.clear();
+            sourceIndex = null;
             int index = fileList.getSelectedIndex();
             
             if (index >= 0) {
-                List<String> inputLines = readFile(fileNames[index].getPath());
-
-                boolean bInHeader = true;
-                int lineNum = 1;
-                for (String line: inputLines) {
-                    // Replace tab characters with 4 spaces to correct the indentation.
-                    line = line.replaceAll("\t", "    ");
-                    
-                    // Replace blank lines with indentation check markings.
-                    //if (line.trim().length() == 0)
-                    //    line = "|---|---|---|---|";
-                    
-                    /**
-                     * Todo: Replace open and close double quotation marks with ".
-                     * 
-                     * The source of this problem is students copy text from assignment
-                     * sheet into their source code to use as part of the documentation.
-                     * 
-                     * Sometimes they copy non-standard characters, causing compiling 
-                     * errors in their code. The only such characters that's causing 
-                     * the problem are open and close double quotation marks, the ones
-                     * that looked sideways. Replace them with the standard one ", the 
-                     * one that looked straight solves the problem.
-                     * 
-                     * Whether this will cause a compiling error is dependent on the 
-                     * compiling environment, but it's better to get it fixed.
-                     */
-                    
-                    if (bInHeader) {
-                        if (line.indexOf("public") >= 0 &&
-                            line.indexOf("class") >= 0 )
-                            bInHeader = false;
-                    }
-                    
-                    /**
-                     * In privacy mode, we replace any line that contains sensitive word
-                     * with a privacy text.
-                     */
-                    if (buttonPrivacyOn.isSelected() && bInHeader) {
-                        if (line.toLowerCase().indexOf("name") >= 0 ||
-                            line.toLowerCase().indexOf("id") >= 0 ||
-                            line.toLowerCase().indexOf("email") >= 0)
-                            line = "***** Replaced by privacy text *****";
-                    }
-                        
-                    scViewerListModel.addElement(String.format("%4d | ", lineNum) + line);
-                    lineNum++;
-                }
+                // The rows are formatted by the model when they are shown.
+                scViewerModel.setText(FileUtil.readText(fileNames[index].getPath()), 1);
+                sourceIndex = new SourceIndex(scViewerModel.getLines(), language);
+                if (buttonPrivacyOn.isSelected())
+                    scViewerModel.setPrivacyIndex(sourceIndex);
             }
+            scViewerList.setPrototypeCellValue(scViewerModel.getPrototype());
         }
         else if (e.getSource() == testCaseList) {
-            scViewerListModel.clear();
+            scViewerModel.clear();
+            sourceIndex = null;
             int index = testCaseList.getSelectedIndex();
 
-            if (index >= 0) {
-                List<String> inputLines = readFile(testCaseNames[index].getPath());
-
-                int lineNum = 0;
-                for (String line: inputLines) {
-                    scViewerListModel.addElement(String.format("%4d | ", lineNum) + line);
-                    lineNum++;
-                }
-            }
+            if (index >= 0)
+                scViewerModel.setText(FileUtil.readText(testCaseNames[index].getPath()), 0);
+            scViewerList.setPrototypeCellValue(scViewerModel.getPrototype());
         }
         else if (e.getSource() == pointsList) {
             int index = pointsList.getSelectedIndex();
             pointsTextArea.setText(pointsListModel.getElementAt(index));
         }
         else if (e.getSource() == scViewerList) {
-            if (fileList.getSelectedIndex() < 0) return;
+            if (fileList.getSelectedIndex() < 0 || sourceIndex == null) return;
             
             feedbackLocationTextArea.setText(null);
             int index = scViewerList.getSelectedIndex();
@@ -808,9 +902,8 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
             if (className.indexOf(".") >= 0)
                 className = className.substring(0, className.indexOf("."));
             
-            // Get method/function name and line index
-            int[] methodNameLineIndex = new int[1];
-            String methodName = getMethodName(index, methodNameLineIndex);
+            // Get method/function name from the index of the file
+            String methodName = sourceIndex.getMethodName(index);
             
             String location = className;
             if (methodName != null && methodName.length() > 0)
@@ -818,34 +911,13 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
             
             feedbackLocationTextArea.setText(location);
 
-            // Check method doc of the current method.
+            // Check method doc of the current method, the items were counted when the file was loaded.
             if (methodName != null) {
-                int maxSearchLengh = 12;
-                String searchArea = "";
-                
-                for (int lineNum = methodNameLineIndex[0] - 1; lineNum >= 0 && maxSearchLengh-- > 0; lineNum--) {
-                    String line = scViewerListModel.getElementAt(lineNum);
-                    
-                    if (line.indexOf("}") >= 0 ||
-                        line.indexOf("{") >= 0) {
-                        break;
-                    }
-                    searchArea += line.toLowerCase();
-                }
-                
-                int methodDocItemCount = 0;
-                String[] methodDocItems = {"method name", "parameters", "return value", "partners", "description"};
-                if (language == Language.C)
-                    methodDocItems[0] = "function name";
-                
-                for (String s : methodDocItems)
-                    if (searchArea.indexOf(s) >= 0)
-                        methodDocItemCount++;
-                    
+                int methodDocItemCount = sourceIndex.getDocItemCount(index);
                 if (methodDocItemCount == 0)
                     //feedbackContentTextArea.setText("Missing method doc.");
                     log(location + "Missing method doc.");
-                else if (methodDocItemCount < methodDocItems.length)
+                else if (methodDocItemCount < SourceIndex.METHOD_DOC_ITEMS.length)
                     //feedbackContentTextArea.setText("Incorrect method doc format.");
                     log(location + "Incorrect method doc format.");
             }
@@ -856,50 +928,6 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
         }
     }
     
-     /** 
-     * Look backwards for method name or class name
-     * 
-     * Input: index of the line to start the search.
-     * Return value: Name of the method that contains the given line.
-     *
-     * When the user click a line of code in the code viewer, we try to find
-     * the name of the method this line of code belongs to.
-     */
-    private String getMethodName(int index, int[] methodNameLineIndex) {
-        String methodName = null;
-        
-        for (; index >= 0; index--) {
-            // Remove line number
-            String line = scViewerListModel.getElementAt(index).substring(7).replaceAll(";", " ").trim();
-            
-            line = cutString(line, "//");
-            line = cutString(line, "throws");
-            
-            if (!(line.endsWith(")") || line.endsWith("{") || line.endsWith(",")))
-                continue;
-            
-            if (line.indexOf("=") >= 0)
-                continue;
-            
-            if ((language == Language.Java && line.startsWith("p")) ||
-                (language == Language.C && !line.startsWith("if ") && !line.startsWith("if(") && !line.startsWith("for ") && !line.startsWith("for(") && !line.startsWith("while ") && !line.startsWith("while(") && !line.startsWith("else ") &&
-                    Pattern.matches("^\\s*[a-z]+\\s+\\S+\\s*[(].*[)].*", line))) {
-                int index1 = line.indexOf("(");
-                if (index1 < 0)
-                    break;
-                
-                if (methodNameLineIndex != null && methodNameLineIndex.length > 0)
-                    methodNameLineIndex[0] = index;
-                
-                String str1 = line.substring(0, index1).trim();
-                methodName = str1.substring(str1.lastIndexOf(" ") + 1);
-                break;
-            }
-        }
-        
-        return methodName;
-    }
-    
     /**
      * Format indices into a string.
      * Group continous indices into a single range.
@@ -937,37 +965,55 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
         return sb.toString();
     }
     
-    /**
-     * If str contains from, then return the portion of str before the first
-     * occurance of from. Otherwise return str.
-     */
-    private String cutString(String str, String from) {
-        int index = str.indexOf(from);
-        if (index > 0)
-            str = str.substring(0, index).trim();
-        return str;
+    // Any change to feedbackTextArea that did not come from addFeedback().
+    private void feedbackChanged() {
+        if (!bAddingFeedback) {
+            bFeedbackEdited = true;
+            savedEntryCount = -1;
+        }
     }
-    
+
     /**
-     * This is purely based on texts in feedbackTextArea.
+     * Bring feedbackModel up to date with texts in feedbackTextArea.
      * 
      * The benefit of this is that the user can manually edit
      * the content in feedbackTextArea should there be any error.
+     * The text is only parsed again after such an edit.
      */
-    private double calculatePoints() {
-        String all = feedbackTextArea.getText();
-        String lines[] = all.split("\\r?\\n");
-        
-        double total = 0;
-        for (String line : lines) {
-            line = line.trim();
-            //log(line);
-            double points = 0;
-            try {
-                points = Double.parseDouble(line.substring(0, line.indexOf(" ")));
-            } catch (Exception e) {}
-            total += points;
+    private void syncFeedback() {
+        if (bFeedbackEdited) {
+            feedbackModel.setText(feedbackTextArea.getText());
+            bFeedbackEdited = false;
         }
+    }
+
+    // Add a line to the end of feedbackTextArea, and an entry to feedbackModel.
+    private void addFeedback(FeedbackEntry entry) {
+        syncFeedback();
+
+        // Start a new line if the last one was typed without a line break.
+        String text = entry.getText() + NEW_LINE;
+        try {
+            Document document = feedbackTextArea.getDocument();
+            if (document.getLength() > 0 && !document.getText(document.getLength() - 1, 1).equals(NEW_LINE))
+                text = NEW_LINE + text;
+        } catch (BadLocationException e) {}
+
+        if (entry.getText().indexOf('\n') >= 0) {
+            // Content with line breaks is more than one entry, parse it with the rest.
+            feedbackTextArea.append(text);
+            return;
+        }
+
+        bAddingFeedback = true;
+        feedbackTextArea.append(text);
+        bAddingFeedback = false;
+        feedbackModel.add(entry);
+    }
+
+    private double calculatePoints() {
+        syncFeedback();
+        double total = feedbackModel.getTotal();
         
         double fullPoints = 0;
         try {
@@ -988,131 +1034,86 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
     private void formatFeedback() {
         outputTextArea.setText("");
         
-        switch (submissionType) {
-            case SecondChance:
-                log("================");
-                log("Second chance:");
-                break;
-            case Late:
-                log("Late submission:");
-                break;
-            default:
-                break;
-        }
-
-        String all = feedbackTextArea.getText();
-        String lines[] = all.split("\\r?\\n");
+        FeedbackModel.Spacing spacing = FeedbackModel.Spacing.Off;
+        if (buttonFeedbackFormat1.isSelected())
+            spacing = FeedbackModel.Spacing.All;
+        else if (buttonFeedbackFormat2.isSelected())
+            spacing = FeedbackModel.Spacing.Class;
 
-        ArrayList<String> list = new ArrayList<String>();
-        for (String line : lines) {
-            line = line.trim();
-            if (line.length() > 0)
-                list.add(line.trim());
-        }
-        
-        String classNameBase = null;
-        while(list.size() > 0) {
-            for (int i = 0; i < list.size(); i++) {
-                String line = list.get(i);
-                String sections[] = line.split(" ");
-                
-                String content = "";
-                for (int j = 2; j < sections.length; j++)
-                    content += " " + sections[j];
-                content = content.substring(1);
-                
-                String className = sections[1];
-                if (className.indexOf(".") >= 0) {
-                    className = className.substring(0, className.indexOf("."));
-                    content = sections[1].substring(sections[1].indexOf(".") + 1) + ". " + content;
-                }
-                
-                if (classNameBase == null && i == 0) {
-                    classNameBase = className;
-                    if ((buttonFeedbackFormat1.isSelected() || buttonFeedbackFormat2.isSelected()) && !outputTextArea.getText().endsWith("\n\n") )
-                        log("");
-                    log(classNameBase);
-                    if (buttonFeedbackFormat1.isSelected() || buttonFeedbackFormat2.isSelected())
-                        log("");
-                    log(sections[0] + " " + content);
-                    if (buttonFeedbackFormat1.isSelected())
-                        log("");
-                    list.remove(0);
-                    i--;
-                }
-                else if (classNameBase.equals(className)) {
-                    log(sections[0] + " " + content);
-                    if (buttonFeedbackFormat1.isSelected())
-                        log("");
-                    list.remove(i);
-                    i--;
-                }
-            }
-            
-            classNameBase = null;
-        }
+        syncFeedback();
+        for (String line : feedbackModel.format(submissionType, spacing))
+            log(line);
     }
     
+    /**
+     * Can be called from any thread, the compile and the test runs log from
+     * the background. Their lines are collected, and added to the output
+     * area together by one event, a program can print lines far faster
+     * than the area can take them one by one.
+     */
     private void log(String log) {
-        outputTextArea.append(log + NEW_LINE);
+        boolean bFlushQueued;
+        synchronized (pendingLog) {
+            bFlushQueued = pendingLog.length() > 0;
+            pendingLog.append(log).append(NEW_LINE);
+        }
+        if (SwingUtilities.isEventDispatchThread()) {
+            flushLog();
+        }
+        else if (!bFlushQueued) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    flushLog();
+                }
+            });
+        }
         //String timeStamp = new SimpleDateFormat("HH:mm:ss").format(Calendar.getInstance().getTime());
         //outputTextArea.append("[" + timeStamp + "]" + log + newline);
     }
     
+    // Add the collected lines to the output area, on the event dispatch thread.
+    private void flushLog() {
+        String text;
+        synchronized (pendingLog) {
+            text = pendingLog.toString();
+            pendingLog.setLength(0);
+        }
+        if (text.length() > 0)
+            outputTextArea.append(text);
+    }
+
     private void clearLog() {
         outputTextArea.setText(null);
     }
 
     // A folder name will be like "CSCI-2240-2-F15-A1", we are trying to find the "2240" as course ID.
     private void getCourseID(String folderName) {
-        int index1 = folderName.indexOf("-");
-        if (index1 < 0) {
+        int id = SubmissionTester.parseCourseID(folderName);
+        if (id < 0) {
             log("Cannot find course name in folder name.");
             return;
         }
-        
-        String str = folderName.substring(index1 + 1);
-        int index2 = str.indexOf("-");
-        if (index2 < 0) {
-            log("Cannot find course name in folder name.");
-            return;
-        }
-        courseID = Integer.parseInt(str.substring(0, index2));
+        courseID = id;
         log("Course ID is: " + courseID);
         
-        // Set the language of the course at here:
-        if (courseID == 1620 || courseID == 1420)
-            language = Language.Java;
-        else if (courseID == 2240)
-            language = Language.C;
+        // The language of each course is set in SubmissionTester.
+        if (SubmissionTester.getLanguage(courseID) != null)
+            language = SubmissionTester.getLanguage(courseID);
         else
             log("ERROR: Unrecognized course: " + courseID);
     }
 
     // A folder name will be like "CSCI-2240-2-F15-A1", we are trying to find the "1" as assignment number.
     private void getAssignmentNumber(String folderName) {
-        String name = folderName;
-        // For late and second chance submissions, "-L" or "-S" will be added to the end of the name. We need to remove those first.
-        if (name.endsWith("-S")) {
-            submissionType = SubmissionType.SecondChance;
-            name = name.substring(0, name.length() - 2);
-        }
-        else if (name.endsWith("-L")) {
-            submissionType = SubmissionType.Late;
-            name = name.substring(0, name.length() - 2);
-        }
-        else{
-            submissionType = SubmissionType.Normal;
-        }
+        submissionType = SubmissionTester.parseSubmissionType(folderName);
         
-        int index1 = name.lastIndexOf("-A");
-        if (index1 < 0) {
+        int num = SubmissionTester.parseAssignmentNumber(folderName);
+        if (num < 0) {
             log("Cannot find assignment number in folder name.");
             return;
         }
         
-        String str = name.substring(index1 + 2);
-        assignmentNum = Integer.parseInt(str);
+        assignmentNum = num;
         log("Assignment number is: " + assignmentNum);
     }
     
@@ -1123,39 +1124,166 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
      *         for current assignment
      */
     private String getAssignmentFolderName() {
-        return "Assignments-" + courseID + File.separator + "A" + assignmentNum;
+        return tester.getAssignmentFolderName();
     }
     
     // Automatically find and load test cases for this assignment, based on the name of the folder.
     private void loadTestCases() {
         log("Loading test cases.");
-        File file = new File(getAssignmentFolderName());
-        testCaseNames = file.listFiles();
-        Arrays.sort(testCaseNames);
+        testCaseNames = tester.listTestCases();
         testCaseListModel.clear();
         
-        // Get a clean list
-        int count = 0;
-        for (File f: testCaseNames)
-            //if (f != null && f.getName().startsWith("TestCase") && !f.getName().startsWith(TEST_CASE_RESULT_FILE_NAME_SUFFIX))
-            if (f != null && Pattern.matches("TestCase\\d*", f.getName()))
-                count++;
-            
-        log("Found " + count + " test cases.");
+        log("Found " + testCaseNames.length + " test cases.");
         
-        File[] tmpList = new File[count];
-        count = 0;
-        for (File f: testCaseNames) {
-            //if (f != null && f.getName().startsWith("TestCase") && !f.getName().startsWith(TEST_CASE_RESULT_FILE_NAME_SUFFIX)) {
-            if (f != null && Pattern.matches("TestCase\\d*", f.getName())) {
-                tmpList[count] = f;
-                testCaseListModel.addElement(f.getName());
-                count++;
+        for (File f: testCaseNames)
+            testCaseListModel.addElement(f.getName());
+    }
+    
+    // Watch the opened folder for students that come, change or go while grading.
+    private void watchAssignment() {
+        if (assignmentWatcher != null)
+            assignmentWatcher.close();
+        assignmentWatcher = null;
+
+        final SubmissionTester assignmentTester = tester;
+        try {
+            assignmentWatcher = new AssignmentWatcher(new File(tester.getAssignmentFolderName()), new AssignmentWatcher.Listener() {
+                public void testCasesChanged(final List<String> testCaseNames) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            GradingTool.this.testCasesChanged(assignmentTester, testCaseNames);
+                        }
+                    });
+                }
+            });
+        } catch (IOException e) {
+            log("Cannot watch the assignment folder for changed test cases: " + e.getMessage());
+        }
+    }
+
+    // Test cases were added or changed, run them again for every student in the background.
+    private void testCasesChanged(SubmissionTester assignmentTester, List<String> names) {
+        // The watcher of another folder may still have been busy.
+        if (!assignmentTester.getAssignmentFolderName().equals(tester.getAssignmentFolderName()))
+            return;
+
+        for (String name : names) {
+            if (!testCaseListModel.contains(name)) {
+                loadTestCases();
+                break;
             }
         }
-        testCaseNames = tmpList;
+        log("Changed test cases: " + names + ". They are run again for every student in the background.");
+        if (folderNames != null)
+            prefetcher.regrade(assignmentTester, folderNames, names);
     }
-    
+
+    private void watchSubmissions(File folder) {
+        if (watcher != null)
+            watcher.close();
+        watcher = null;
+        if (!folder.isDirectory())
+            return;
+
+        final SubmissionTester assignmentTester = tester;
+        try {
+            watcher = new SubmissionWatcher(folder, new FileFilter() {
+                public boolean accept(File f) {
+                    return assignmentTester.isSourceCodeFile(f.getName());
+                }
+            }, new SubmissionWatcher.Listener() {
+                public void studentChanged(final File studentFolder, final boolean bNew) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            submissionChanged(studentFolder, bNew);
+                        }
+                    });
+                }
+
+                public void studentRemoved(final String student) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            submissionRemoved(student);
+                        }
+                    });
+                }
+            });
+        } catch (IOException e) {
+            log("Cannot watch the folder for new submissions: " + e.getMessage());
+        }
+    }
+
+    // The name of the selected student, null if none is selected.
+    private String getSelectedStudent() {
+        int index = studentList.getSelectedIndex();
+        return index < 0 ? null : folderNames[index].getName();
+    }
+
+    /**
+     * A student folder was added, or their source code changed. The list is
+     * updated in place, and the student is compiled in the background. If
+     * it is the student being graded, their compiled program is dropped.
+     */
+    private void submissionChanged(File studentFolder, boolean bNew) {
+        if (folderNames == null)
+            return;
+
+        String name = studentFolder.getName();
+        int index = Arrays.binarySearch(folderNames, studentFolder);
+        if (bNew && index < 0) {
+            index = -index - 1;
+            File[] names = new File[folderNames.length + 1];
+            System.arraycopy(folderNames, 0, names, 0, index);
+            names[index] = studentFolder;
+            System.arraycopy(folderNames, index, names, index + 1, folderNames.length - index);
+
+            bUpdatingStudents = true;
+            folderNames = names;
+            studentListModel.add(index, buttonPrivacyOff.isSelected() ? name : String.format("ID = %d", nextStudentID++));
+            bUpdatingStudents = false;
+            log("New submission: " + studentListModel.getElementAt(index));
+        }
+        else if (index >= 0) {
+            log("Submission changed: " + studentListModel.getElementAt(index));
+        }
+        else {
+            return;
+        }
+
+        if (name.equals(getSelectedStudent())) {
+            // Not while it is being compiled or tested, that finishes with the old files.
+            if (busyTester == null) {
+                tester.release();
+                testButton.setEnabled(false);
+                testCaseList.setEnabled(false);
+                log("Select the student again to see the new files, and compile again.");
+            }
+            return;
+        }
+        prefetcher.request(tester, studentFolder);
+    }
+
+    // A student folder is gone.
+    private void submissionRemoved(String student) {
+        prefetcher.invalidate(student);
+        if (folderNames == null)
+            return;
+
+        int index = Arrays.binarySearch(folderNames, new File(folderNames.length > 0 ? folderNames[0].getParentFile() : null, student));
+        if (index < 0)
+            return;
+        log("Submission removed: " + studentListModel.getElementAt(index));
+
+        File[] names = new File[folderNames.length - 1];
+        System.arraycopy(folderNames, 0, names, 0, index);
+        System.arraycopy(folderNames, index + 1, names, index, names.length - index);
+
+        bUpdatingStudents = true;
+        folderNames = names;
+        studentListModel.remove(index);
+        bUpdatingStudents = false;
+    }
+
     private void loadCommonIssues() {
         commonIssueListModel.clear();
 
@@ -1164,7 +1292,7 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
         
         for (File f: files) {
             if (f != null && f.getName().toLowerCase().indexOf("common") >= 0) {
-                for (String line : readFile(f.getAbsolutePath())) {
+                for (String line : FileUtil.readFile(f.getAbsolutePath())) {
                     commonIssueListModel.addElement(line);
                 }
                 break;
@@ -1184,6 +1312,10 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
                 frame.setTitle(PROGRAM_NAME + " - " + file.getName());
                 getCourseID(file.getName());
                 getAssignmentNumber(file.getName());
+                if (tester != null)
+                    tester.release();
+                tester = createTester();
+                prefetcher.clear();
                 
                 studentListModel.clear();
                 if (file.isDirectory()) {
@@ -1201,10 +1333,15 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
                     
                         count++;
                     }
+                    nextStudentID = count;
                 }
                 
                 loadCommonIssues();
                 loadTestCases();
+                if (folderNames != null)
+                    prefetcher.select(tester, folderNames, -1);
+                watchSubmissions(file);
+                watchAssignment();
                 
                 studentList.setEnabled(true);
                 compileButton.setEnabled(false);
@@ -1214,52 +1351,44 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
         }
         else if (e.getSource() == compileButton) {
             compileButton.setEnabled(false);
-            copyToTempFolder();
-            
-            log("Compiling...");
-            
-            boolean bSuccess = false;
-            String[] lines = null;
+            setBusy(tester);
             
-            try {
-                lines = runTest(testCaseNames[0].getName(), true);
-                bSuccess = true;
-            }
-            catch(Exception ee) {
-                log("Exception during compiling:");
-                log(ee.toString());
-            }
-            
-            if (language == Language.Java) {
-                // Ignore certain warnings
-                if (lines != null && lines.length > 0 && lines[0].length() > 0) {
-                    for (String line : lines) {
-                        log(line);
-                        if (!line.startsWith("Note:")) {
-                            bSuccess = false;
-                            break;
-                        }
+            final SubmissionTester compileTester = tester;
+            final File[] sourceFiles = fileNames;
+            new SwingWorker<Boolean, Void>() {
+                protected Boolean doInBackground() {
+                    return compileTester.compile(sourceFiles);
+                }
+
+                protected void done() {
+                    setBusy(null);
+                    boolean bSuccess = false;
+                    try {
+                        bSuccess = get();
+                    } catch (Exception ex) {
+                        log(ex.toString());
+                    }
+
+                    if (!bSuccess) {
+                        log("\r\n*** Failed to compile ***");
+                    }
+                    else {
+                        log("Success!");
+                        testButton.setEnabled(true);
+                        testCaseList.setEnabled(true);
                     }
                 }
-            }
-            else if (language == Language.C) {
-                Path path = Paths.get(TEMP_FOLDER_NAME + File.separator + getCExecutableName());
-                if (!Files.exists(path))
-                    bSuccess = false;
-            }
-            
-            if (!bSuccess) {
-                log("\r\n*** Failed to compile ***");
-            }
-            else {
-                log("Success!");
-                testButton.setEnabled(true);
-                testCaseList.setEnabled(true);
-            }
+            }.execute();
         }
         else if (e.getSource() == testButton) {
             runSelectedTestCase();
         }
+        else if (e.getSource() == cancelButton) {
+            if (busyTester != null) {
+                cancelButton.setEnabled(false);
+                busyTester.cancel();
+            }
+        }
         else if (e.getSource() == addButton) {
             // Set some default values if none were given.
             if (feedbackLocationTextArea.getText().trim().length() == 0)
@@ -1269,10 +1398,8 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
                 pointsList.setSelectedIndex(0);
             }
                 
-            feedbackTextArea.append(pointsTextArea.getText() + " " 
-                + feedbackLocationTextArea.getText() + " "
-                + (feedbackLinesTextArea.getText().length() > 0 ? feedbackLinesTextArea.getText() + ". " : "")
-                + feedbackContentTextArea.getText() + NEW_LINE);
+            addFeedback(new FeedbackEntry(pointsTextArea.getText(), feedbackLocationTextArea.getText(),
+                feedbackLinesTextArea.getText(), feedbackContentTextArea.getText()));
                 
             // Save to file, too.
             calculatePoints();
@@ -1284,28 +1411,8 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
                 
             // Save to file.
             double points = calculatePoints();
-            double factor = 1;
-            switch (submissionType) {
-                case SecondChance:
-                    if (language == Language.Java)
-                        factor = 0.85;
-                    else if (language == Language.C)
-                        factor = 0.7;
-                    break;
-                case Late:
-                    if (language == Language.Java)
-                        factor = 0.65;
-                    else if (language == Language.C)
-                        factor = 0.5;
-                    break;
-                default:
-                    break;
-            }
             log("");
-            if (factor == 1)
-                log("Total = " + points);
-            else
-                log("Total = " + points + " x " + factor + " = " + points * factor);
+            log(FeedbackModel.formatTotal(points, SubmissionTester.getPointsFactor(submissionType, language)));
             
             saveFeedback();
         }
@@ -1319,586 +1426,92 @@ public class GradingTool extends JPanel implements ListSelectionListener, Action
         }
     }
     
+    // Only what changed is saved, see FeedbackJournal.
     private void saveFeedback() {
-        writeFile(feedbackFilePath, feedbackTextArea.getText());
-    }
-    
-    private void writeFile(String pathName, String content) {
-        FileWriter fw = null;
-        BufferedWriter bw = null;
-        try {
-            fw = new FileWriter(pathName);
-            bw = new BufferedWriter(fw);
-            bw.write(content);
+        syncFeedback();
+        File feedbackFile = new File(feedbackFilePath);
+        List<FeedbackEntry> entries = feedbackModel.getEntries();
+        if (savedEntryCount < 0) {
+            feedbackJournal.replace(feedbackFile, feedbackTextArea.getText());
         }
-        catch (IOException e) {}
-        finally {
-            try {
-                if (bw != null) bw.close();
-                if (fw != null) fw.close();
-            } catch (IOException e) {}
-        }
-    }
-    
-    private List<String> readFile(String pathName) {
-        System.out.println("Reading file: " + pathName);
-        
-        Path path = Paths.get(pathName);
-        if (!Files.exists(path))
-            return new ArrayList<String>();
-            
-        List<String> inputLines = null;
-        try {
-            inputLines = Files.readAllLines(path, StandardCharsets.UTF_8);
-            
-            /**
-             * Try other encodings, this part is not working very well
-             * 
-             * Some international students have their computers setup in other
-             * languages, and they would save their source code in non-standard
-             * encodings, and resulting in compiling errors on other computers. 
-             */
-            if (inputLines == null)
-                inputLines = Files.readAllLines(path, StandardCharsets.ISO_8859_1);
-            if (inputLines == null)
-                inputLines = Files.readAllLines(path, StandardCharsets.US_ASCII);
-        } catch (IOException e) {
-            System.out.println("Failed to read file: " + pathName);
-            System.out.println(e);  
-        }
-        
-        if (inputLines == null)
-            return new ArrayList<String>(); // Do not return null
-        else
-            return inputLines;
-    }
-    
-    private void recursivelyDeleteFile(File target) {
-        for(File f : target.listFiles()) {
-            if (f.isDirectory())
-                recursivelyDeleteFile(f);
-            f.delete();
+        else {
+            for (int i = savedEntryCount; i < entries.size(); i++)
+                feedbackJournal.append(feedbackFile, entries.get(i).getText());
         }
+        savedEntryCount = entries.size();
     }
     
-    private void copyToTempFolder() {
-        // Clear temp folder first
-        File tempFolder = new File(TEMP_FOLDER_NAME);
-        recursivelyDeleteFile(tempFolder);
-
-        try {
-            // Copy source code files from user folder to temp folder
-            for (File f : fileNames)
-                Files.copy(Paths.get(f.getAbsolutePath()), Paths.get(tempFolder.getAbsolutePath() + File.separator + f.getName()), REPLACE_EXISTING);
-
-            // Copy everything in the assignment folder (except CommonIssues.txt) to temp folder.
-            {
-                File file = new File(getAssignmentFolderName());
-                for (File f: file.listFiles())
-                    if (f != null && !f.getName().equals(FILE_NAME_COMMON_ISSUES))
-                        Files.copy(Paths.get(f.getAbsolutePath()), Paths.get(tempFolder.getAbsolutePath() + File.separator + f.getName()), REPLACE_EXISTING);
-            }
-        } catch (IOException e) {
-            log("Error: " + e.getMessage());
-        }
-    }
-      
-    private void copyCodeTester(String codeTestFolderName)
-    {
-        File tempFolder = new File(TEMP_FOLDER_NAME);
-        File file = new File(codeTestFolderName);
-        File[] files = file.listFiles();
-        
-        try {
-            for (File f: file.listFiles())
-                if (f != null && f.getName().endsWith(".class"))
-                    Files.copy(Paths.get(f.getAbsolutePath()), Paths.get(tempFolder.getAbsolutePath() + File.separator + f.getName()), REPLACE_EXISTING);
-        } catch (IOException e) {
-            log("Error: " + e.getMessage());
-        }
-    }
-
     private void runSelectedTestCase() {
         int index = testCaseList.getSelectedIndex();
-        if (index < 0)
+        if (index < 0) {
             log("Select a test case first.");
-            
-        clearLog();
-        String[] lines = runTest(testCaseNames[index].getName(), false);
-        if (lines == null) {
-            log("Test run unsuccessful.");
             return;
         }
-        
-        for (String line : lines)
-            log(line);
-    }
-    
-    private String getCExecutableName() {
-        if (m_bWindows)
-            return "a.exe";
-        else
-            return "a.out";
-    }
-    
-    private String[] runTest(String testCaseName, boolean bCompile) {
-        // Read test case
-        String testCaseFile = TEMP_FOLDER_NAME + File.separator + testCaseName;
-        String testResultFile = testCaseFile + TEST_CASE_RESULT_FILE_NAME_SUFFIX;
-        
-        // Copy the correct CodeTester to the Temp folder.
-        if (language == Language.C || Files.exists(Paths.get(testResultFile))) {
-            System.out.println("Selecting accurate CodeTester.");
-            copyCodeTester(CODE_TESTER_ACCURATE_FOLDER_NAME);
-        }
-        else {
-            System.out.println("Selecting fast CodeTester.");
-            copyCodeTester(CODE_TESTER_FAST_FOLDER_NAME);
-        }
-
-        // Read input lines from the test case file.
-        List<String> inputLines = readFile(testCaseFile);
-        
-        // Get executable name and launching arguments
-        String[] sections = inputLines.get(0).split(" ");
-        String executableName = sections[0];
-        
-        log("----------");
-        log("There are " + sections.length + " sections.");
-        for (int i = 0; i < sections.length; i++)
-            log("Section " + i + ": " + sections[i]);
-        log("----------");
-        
-        // Setting the command to compile and run the program depending on the language.
-        String tempFolder = System.getProperty("user.dir") + File.separator + TEMP_FOLDER_NAME + File.separator;
-        Process process = null;
-        if (language == Language.Java) {
-            try {
-                ProcessBuilder pb = null;
-                if (bCompile) {
-                    pb = new ProcessBuilder("javac", "-d", ".", "@sources");
-                    //pb = new ProcessBuilder("javac", executableName + ".java");
-                }
-                else {
-                    pb = new ProcessBuilder("java", CODE_TESTER_CLASS_NAME, testCaseName);
-                }
-                pb.directory(new File(tempFolder));
-                process = pb.start();
-            } catch (IOException e) {
-                log(e.toString());
-                return null;
-            }
-        }
-        else if (language == Language.C) {     
-            if (bCompile) {
-                /////////////////////
-                // Code for specific assignments
-                if (courseID == 2240 && assignmentNum == 3)
-                    CSCI2240_A3_UseAlternateInputFile(executableName + ".c");
-                if (courseID == 2240 && assignmentNum == 5)
-                    CSCI2240_A5_FixServerAddress();
-            }
-            else {
-                if (courseID == 2240 && assignmentNum == 3)
-                    CSCI2240_A3_CreateTempInput(testCaseName);
-            }
-
-            try {
-                ProcessBuilder pb = null;
-                if (bCompile)
-                    pb = new ProcessBuilder("gcc", "-Wall", "-ansi", "-pedantic", executableName + ".c");
-                else
-                    pb = new ProcessBuilder("java", CODE_TESTER_CLASS_NAME, testCaseName);
-                pb.directory(new File(tempFolder));
-                process = pb.start();
-            } catch (IOException e) {
-                log(e.toString());
-                return null;
-            }        
-        }
-        // This is the code prior to switch to use CodeTester to do the testing.
-        /*
-        else if (language == Language.C) {            
-            sections[0] = System.getProperty("user.dir") + File.separator + TEMP_FOLDER_NAME + File.separator + getCExecutableName(); // Use absolute path
-            if (bCompile) {
-                //sections[0] = "gcc -Wall -ansi -pedantic " + executableName + ".c"; // Cannot get this to work.
-                sections[0] = "gcc -Wall -pedantic " + executableName + ".c";
-                
-                /////////////////////
-                // Code for specific assignments
-                if (courseID == 2240 && assignmentNum == 5)
-                    CSCI2240_A5_FixServerAddress();
-            }
-
-            log("Executing: " + sections[0]);
             
-            // I need use dir with C because of launching arguments. If one of those were filenames, then the wrong launching dir will cause the C program to fail to find the file.
-            File dir = new File(System.getProperty("user.dir") + File.separator + TEMP_FOLDER_NAME);
-            try {
-                if (bCompile)
-                    process = Runtime.getRuntime().exec(sections[0], null, dir);
-                else
-                    process = Runtime.getRuntime().exec(sections, null, dir);
-            } catch (IOException e) {
-                log(e.toString());
-                return null;
-            }
-        } */
-        else {
-            log("This programming language is not supported yet.");
-            return null;
-        }
-        
-        if (process == null) {
-            log("Failed to start process");
-            return null;
-        }
-        else {            
-            log("Process started: " + process.toString());
-        }
-
-        List<String> lines = new ArrayList<String>();
-        if (bCompile) {
-            // See if there is any error output from the compiler, we want none.
-            Scanner scanner = new Scanner(new InputStreamReader(process.getErrorStream()));
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                
-                // Bug fix: The following output lines were considered normal:
-                if (line.equals("Picked up JAVA_TOOL_OPTIONS: -javaagent:/usr/share/java/jayatanaag.jar "))
-                    continue;
-                
-                lines.add(line);
-            }
-            
-            // If there is no output from the compiler, we still need to verify if the output file was really created.
-            if (lines.size() == 0) {
-                //if (language == Language.Java)
-                Path path = Paths.get(TEMP_FOLDER_NAME + File.separator + executableName + ".class");
-                if (language == Language.C)
-                    path = Paths.get(TEMP_FOLDER_NAME + File.separator + getCExecutableName());
-                    
-                if (!Files.exists(path))
-                    lines.add("Verification failed: Cannot find the compiled file.");
-            }
-            
-            scanner.close();
-        }
-        else {
-            Scanner scanner = new Scanner(new InputStreamReader(process.getInputStream()));
-            Scanner errorScanner = new Scanner(new InputStreamReader(process.getErrorStream()));
-
-            // Collect all the output.
-                    
-            lines.add("===============================");
-            lines.add("Output:");
-            lines.add("-------------------------------");
-        
-            List<String> outputLines = new ArrayList<String>();
-            boolean bResultSection = true;
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                lines.add(line);
-                
-                // Ignore match check done by the CodeTester
-                if (line.startsWith("==========================="))
-                    bResultSection = false;
-
-                if (bResultSection)
-                    outputLines.add(line);
+        clearLog();
+        setBusy(tester);
+        final SubmissionTester runTester = tester;
+        final String testCaseName = testCaseNames[index].getName();
+        new SwingWorker<TestResult, Void>() {
+            protected TestResult doInBackground() {
+                // The lines are shown as they come, not when the test is over.
+                return runTester.runTest(testCaseName, new TestResult.LineListener() {
+                    public void lineAdded(String line) {
+                        log(line);
+                    }
+                });
             }
 
-            // Compare result to a pre-defined result file
-        
-            /////////////////////
-            // Code for specific assignments
-            if (courseID == 1620 && assignmentNum == 3) {
-                CSCI1620_A3_VerifyMaze(lines);
-                for (String line : verifyOutput(outputLines, testResultFile))
-                    lines.add(line);
-            }
-            else if (courseID == 2240 && assignmentNum == 4) {
-                // For this assignment we need to verify two output files.
-                String outputFile = TEMP_FOLDER_NAME + File.separator + sections[2] + ".out";
-                String outputFile_Expected = testResultFile + ".out";                
-                for (String line : verifyOutput(outputFile, outputFile_Expected))
-                    lines.add(line);
-                
-                String wordsFile = TEMP_FOLDER_NAME + File.separator + sections[2] + ".words";
-                String wordsFile_Expected = testResultFile + ".words";
-                for (String line : verifyOutput(wordsFile, wordsFile_Expected))
-                    lines.add(line);
-            }
-            else { // Compare with the result file
-                for (String line : verifyOutput(outputLines, testResultFile))
-                    lines.add(line);
-            }
-            
-            // Add error output
-            boolean bTitle = false;
-            while (errorScanner.hasNextLine()) {
-                if (!bTitle) {
-                    lines.add("===============================");
-                    lines.add("Error output:");
-                    lines.add("-------------------------------");
-                    bTitle = true;
+            protected void done() {
+                setBusy(null);
+                testButton.setEnabled(true);
+                testCaseList.setEnabled(true);
+                TestResult result = null;
+                try {
+                    result = get();
+                } catch (Exception ex) {
+                    log(ex.toString());
                 }
-                String line = errorScanner.nextLine();
-                lines.add(line);
+                if (result == null)
+                    log("Test run unsuccessful.");
             }
-            
-            scanner.close();
-            errorScanner.close();
-        }
-        
-        return lines.toArray(new String[lines.size()]);
+        }.execute();
     }
-    
-    private List<String> verifyOutput(String actualFile, String expectedFile) {
-        if (!Files.exists(Paths.get(actualFile))) {
-            List<String> tmpLines = new ArrayList<String>();
-            tmpLines.add("Cannot find file: " + Paths.get(actualFile).getFileName());
-            return tmpLines;
-        }
-        
-        return verifyOutput(readFile(actualFile), expectedFile);
-    }
-    
-    private List<String> verifyOutput(List<String> lines, String expectedFile) {
-        if (!Files.exists(Paths.get(expectedFile)))
-            return new ArrayList<String>();
-        
-        return verifyOutput(lines, readFile(expectedFile));
-    }
-
-    private List<String> verifyOutput(List<String> lines, List<String> expectedLines) {
-        List<String> tmpLines = new ArrayList<String>();
-        
-        tmpLines.add("===============================");
-        tmpLines.add("Compared to expected output:");
-        tmpLines.add("-------------------------------");
-    
-        boolean error = false;
-        
-        // A simple comparison of number of lines.
-        if (lines.size() > expectedLines.size()) {
-            tmpLines.add("Output is longer than expected.");
-            tmpLines.add("expectedLines.size() = " + expectedLines.size());
-            tmpLines.add("outputLines.size() = " + lines.size());
-            error = true;
-        }
-        if (lines.size() < expectedLines.size()) {
-            tmpLines.add("Output is shorter than expected.");
-            tmpLines.add("expectedLines.size() = " + expectedLines.size());
-            tmpLines.add("outputLines.size() = " + lines.size());
-            error = true;
-        }
-        tmpLines.add("");
-        
-        // Sometimes there are extra output lines before the expected output, we skip those, but they are an error nonetheless.
-        String firstLine = expectedLines.get(0).trim();
-        int j = 0;
-        for (j = 0; j < lines.size(); j++) {
-            if (firstLine.equals(lines.get(j).trim()))
-                break;
-                
-            error = true;
-        }
-        if (j > 0) {
-            tmpLines.add("There are " + j + " extra lines before expected output.");
-            tmpLines.add("");
-        }
-        
-        if (j == lines.size()) {
-            //tmpLines.add("Cannot find the first line in the expect output.");
-            //tmpLines.add("");
-            error = true;
-            
-            // If we cannot find the matching first line, we try to start from the back and counting to the starting line.
-            
-            // First remove empty lines at the back
-            for (j = lines.size() - 1; j >= 0; j--)
-                if (lines.get(j).trim().length() > 0)
-                    break;
-                    
-            // Then check is j is still valid.
-            j -= expectedLines.size() - 1;
-            if (j < 0) {
-                tmpLines.add("Cannot find the first line in the expect output.");
-                tmpLines.add("");
-                j = lines.size();
-            }
-        }
 
-        int mismatchCount = 0;
-        int i = 0;
-        for (i = 0; i < expectedLines.size() && i + j < lines.size(); i++) {
-            String line = expectedLines.get(i).trim();
-            if (!line.equals(lines.get(i + j).trim())) {
-                mismatchCount++;
-                tmpLines.add("Mismatch " + mismatchCount + ":");
-                tmpLines.add("  Line     : " + (i + 1));
-                tmpLines.add("  Expected : " + expectedLines.get(i));
-                tmpLines.add("  Actual   : " + lines.get(i + j));
-                tmpLines.add("");
-                error = true;
-            }
-        }
-        
-        if (!error) {
-            tmpLines.add("No error.");
+    /**
+     * Disable what would start another compile or test, or change the
+     * student, while the tester works in the background. Everything else
+     * stays usable.
+     *
+     * @param busy The tester that started working, or null once it is done.
+     */
+    private void setBusy(SubmissionTester busy) {
+        busyTester = busy;
+        boolean bIdle = busy == null;
+        openButton.setEnabled(bIdle);
+        studentList.setEnabled(bIdle);
+        cancelButton.setEnabled(!bIdle);
+        prefetcher.setPaused(!bIdle);
+        if (!bIdle) {
+            testButton.setEnabled(false);
+            testCaseList.setEnabled(false);
         }
-        tmpLines.add("===============================");
-        
-        return tmpLines;
     }
     
-    // This is for CSCI-1620 A3(Maze) only
-    // This method checks if the number of 'X's is equal to the number of steps
-    // Returns false if maze is solved and steps don't match number of 'X's.
-    private boolean CSCI1620_A3_VerifyMaze(List<String> lines) {
-        String output = "";
-        for (String line : lines)
-            output += line;
-        //String output = outputTextArea.getText();
-        
-        output = output.toLowerCase();
-        
-        // Find if it is solved
-        if (output.indexOf("path") < 0)
-            return true;
-        
-        int index1 = output.indexOf("solved");
-        if (index1 < 0)
-            return true;
-        
-        String maze = output.substring(index1); // Roughly the solved maze
-        index1 = maze.indexOf("=====");
-        if (index1 > 0)
-            maze = maze.substring(0, index1);
-
-        char[] a = maze.toCharArray();
-        
-        int count = 0;
-        for (char c : a) {
-            if (c == 'x' || c == 'X')
-                count++;
-        }
-        
-        // Now get the count that was printed out.
-        int index2 = output.indexOf("took");
-        int index3 = output.indexOf("steps");
-        
-        int steps = 0;
-        try {
-            steps = Integer.parseInt(output.substring(index2 + 4, index3).trim());
-        } catch (Exception e) {}
-        
-        log("");
-        log("========================");
-        log("Verifying if(steps == number of 'x's)");
-        log("");
-        
-        if (steps == count) {
-            log("Match!");
-            return true;
-        }
-        else {
-            log(String.format("No"));
-            log(String.format("Steps = %d", steps));
-            log(String.format("Number of 'X's = %d", count));
-            return false;
-        }
+    /**
+     * Create the tester used by the GUI. It is not for any student yet, use
+     * forStudent() once a student is selected.
+     */
+    private SubmissionTester createTester() {
+        return new SubmissionTester(courseID, assignmentNum, language, workspaces, workers, null, createLog());
     }
 
-    // This is for CSCI-2240 A5(client/server) only
-    // Some students hardcode loki as the address of the server. This
-    // method replaces it with localhost.
-    private void CSCI2240_A5_FixServerAddress() {
-        String clientFile = TEMP_FOLDER_NAME + File.separator + "client.c";
-        
-        List<String> lines = readFile(clientFile);
-        if (lines == null || lines.size() == 0) {
-            log("CSCI2240_A5_FixServerAddress: Cannot find file \"client.c\"");
-            return;
-        }
-        
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i).trim();
-            if (!line.startsWith("/") && line.indexOf("gethostbyname") >= 0) {
-                line = line.substring(0, line.indexOf("gethostbyname")) + "gethostbyname(\"localhost\");";
-                lines.set(i, line);
-                log("CSCI2240_A5_FixServerAddress: updated line " + (i + 1) + " to: " + line);
-                break;
-            }
-        }
-        
-        try {
-            Files.write(Paths.get(clientFile), lines, StandardCharsets.UTF_8);
-        }
-        catch (Exception e) {
-            log("CSCI2240_A5_FixServerAddress: Failed to write back to file.");
-        }
-    }
-    
-    private void CSCI2240_A3_UseAlternateInputFile(String sourceCodeFileName) {
-        String fileFullPath = TEMP_FOLDER_NAME + File.separator + sourceCodeFileName;
-        List<String> lines = readFile(fileFullPath);
-        if (lines == null || lines.size() == 0) {
-            log("CSCI2240_A3_UseAlternateInputFile: Cannot find file: " + fileFullPath);
-            return;
-        }
-        
-        int count = 0;
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i).trim();
-            if (!line.startsWith("/") && line.indexOf("/dev/tty") >= 0) {
-                line = line.replace("/dev/tty", "tempinput");
-                lines.set(i, line);
-                log("CSCI2240_A3_UseAlternateInputFile: updated line " + (i + 1) + " to:");
-                log(line);
-                count++;
+    // Logs to the output area, from any thread.
+    private SubmissionTester.Log createLog() {
+        return new SubmissionTester.Log() {
+            public void log(String line) {
+                GradingTool.this.log(line);
             }
-        }
-        
-        try {
-            Files.write(Paths.get(fileFullPath), lines, StandardCharsets.UTF_8);
-        }
-        catch (Exception e) {
-            log("CSCI2240_A3_UseAlternateInputFile: Failed to write back to file.");
-        }
-    }
-    
-    private void CSCI2240_A3_CreateTempInput(String testCaseName) {
-        // Read test case
-        String testCaseFile = TEMP_FOLDER_NAME + File.separator + testCaseName;
-        String tempInputFile = TEMP_FOLDER_NAME + File.separator + "tempinput";
-        List<String> lines = readFile(testCaseFile);
-        if (lines == null || lines.size() == 0) {
-            log("CSCI2240_A3_CreateTempInput: Cannot find file: " + testCaseFile);
-            return;
-        }
-        if (lines.size() < 4) {
-            log("CSCI2240_A3_CreateTempInput: Testcase file does not contain user input lines: " + testCaseFile);
-            return;
-        }
-        
-        lines.remove(0);
-        
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i).trim();
-            if (line == null || line.length() == 0 || line.startsWith("/")) {
-                lines.remove(i);
-                i--;
-            }
-        }
-        
-        try {
-            Files.write(Paths.get(tempInputFile), lines, StandardCharsets.UTF_8);
-            log("CSCI2240_A3_CreateTempInput: User input file for " + testCaseName + " was created.");
-        }
-        catch (Exception e) {
-            log("CSCI2240_A3_CreateTempInput: Failed to write back to file.");
-        }
+        };
     }
 }
@@ -0,0 +1,259 @@
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps a few JVMs running JavaRunWorker from the CodeTester folder, so
+ * that Java test runs do not start two new JVMs each.
+ *
+ * A worker runs one test at a time, and its output is read while the
+ * program runs, like the output of CodeTester. Workers are started when
+ * they are first needed, up to the given number, and are reused after
+ * that. A worker whose program goes over a limit of ProcessWatchdog, or
+ * is cancelled, is killed, and a new one is started for the next run. A
+ * run that is stopped with stop() is cancelled by the worker itself, which
+ * stays alive for the next run. If a
+ * worker cannot be started, the pool turns itself off and start() returns
+ * null, the caller starts CodeTester then.
+ */
+class JavaWorkerPool {
+    private static final String WORKER_CLASS_NAME = "JavaRunWorker";
+
+    // The protocol of JavaRunWorker.
+    private static final String READY = "READY";
+    private static final String RUN = "RUN";
+    private static final String OUT = "OUT";
+    private static final String ERR = "ERR";
+    private static final String END = "END";
+    private static final String STOP = "STOP";
+    private static final String QUIT = "QUIT";
+    private static final String CANCEL = "CANCEL";
+    private static final String OUTPUT_LIMIT_PROPERTY = "outputLimit";
+
+    private final File codeTesterFolder;
+    private final int maxWorkers;
+    private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<Worker>();
+    private final List<Worker> allWorkers = new ArrayList<Worker>();
+    private volatile boolean disabled = false;
+
+    /**
+     * One test run. The standard output of the program is read from it as
+     * text, the lines of error output are there once it has ended.
+     */
+    class Run implements Readable {
+        final List<String> errorLines = new ArrayList<String>();
+
+        // The limit the program went over, null if none.
+        TestResult.Verdict stopVerdict;
+        String stopReason;
+
+        private final Worker worker;
+        private final ProcessWatchdog watchdog;
+        private final AtomicReference<Process> running;
+        private String line = "";
+        private int position = 0;
+        private boolean bEnded = false;
+        private boolean bQuit = false;
+        private boolean bFinished = false;
+
+        private Run(Worker worker, AtomicReference<Process> running) {
+            this.worker = worker;
+            this.running = running;
+
+            // Kill the worker if the program goes over a limit.
+            watchdog = new ProcessWatchdog(worker.process, true);
+            watchdog.start();
+            if (running != null)
+                running.set(worker.process);
+        }
+
+        public int read(CharBuffer buffer) throws IOException {
+            while (position >= line.length()) {
+                String next = readOutputLine();
+                if (next == null)
+                    return -1;
+                line = next + "\n";
+                position = 0;
+            }
+            int count = Math.min(buffer.remaining(), line.length() - position);
+            buffer.put(line, position, position + count);
+            position += count;
+            return count;
+        }
+
+        /**
+         * Stop the program, its output is not needed any more. The worker
+         * stops it and ends the reply, the rest of which is read by
+         * finish(), so the worker is kept for the next run.
+         */
+        void stop() {
+            worker.requests.println(CANCEL);
+            worker.requests.flush();
+        }
+
+        // The next line of standard output, null once the program has ended.
+        private String readOutputLine() throws IOException {
+            if (bEnded)
+                return null;
+
+            String reply;
+            while ((reply = worker.replies.readLine()) != null) {
+                if (reply.equals(END)) {
+                    bEnded = true;
+                    return null;
+                }
+                watchdog.addOutput(reply.length() + 1);
+                if (reply.startsWith(OUT + " "))
+                    return reply.substring(OUT.length() + 1);
+                else if (reply.startsWith(ERR + " "))
+                    errorLines.add(reply.substring(ERR.length() + 1));
+                else if (reply.startsWith(STOP + " ")) {
+                    // The worker stopped the program itself, it printed too much.
+                    stopVerdict = TestResult.Verdict.OutputLimit;
+                    stopReason = reply.substring(STOP.length() + 1);
+                }
+                else if (reply.equals(QUIT))
+                    bQuit = true; // Threads of the program are left in the worker.
+            }
+            return null;
+        }
+
+        /**
+         * Read what is left of the reply and give the worker back to the
+         * pool, or kill it if it cannot be used again.
+         */
+        void finish() {
+            if (bFinished)
+                return;
+            bFinished = true;
+
+            try {
+                while (readOutputLine() != null);
+            } catch (IOException e) {}
+            watchdog.finish();
+            if (running != null)
+                running.set(null);
+
+            if (watchdog.getVerdict() != null) {
+                stopVerdict = watchdog.getVerdict();
+                stopReason = watchdog.getReason();
+            }
+            if (bEnded && !bQuit && worker.process.isAlive())
+                idleWorkers.add(worker);
+            else
+                discard(worker);
+        }
+    }
+
+    private static class Worker {
+        Process process;
+        PrintWriter requests;
+        BufferedReader replies;
+    }
+
+    JavaWorkerPool(File codeTesterFolder, int maxWorkers) {
+        this.codeTesterFolder = codeTesterFolder.getAbsoluteFile();
+        this.maxWorkers = maxWorkers;
+    }
+
+    // false once the pool has turned itself off.
+    boolean isEnabled() {
+        return !disabled;
+    }
+
+    /**
+     * Start running a test case on the compiled program in the folder. The
+     * run has to be finished with finish().
+     *
+     * @param running Is set to the worker process while it runs the test,
+     *                killing that process stops the test. Can be null.
+     * @return The run, or null if no worker could run it.
+     */
+    Run start(File folder, String testCaseName, AtomicReference<Process> running) {
+        if (disabled)
+            return null;
+
+        Worker worker;
+        try {
+            worker = acquire();
+        } catch (Exception e) {
+            disabled = true;
+            return null;
+        }
+        if (worker == null)
+            return null;
+
+        Run run = new Run(worker, running);
+        worker.requests.println(RUN + " " + testCaseName + " " + folder.getAbsolutePath());
+        worker.requests.flush();
+        return run;
+    }
+
+    // An idle worker, or a new one if there are not enough yet. Waits if all are busy.
+    private Worker acquire() throws IOException, InterruptedException {
+        while (true) {
+            Worker worker = idleWorkers.poll();
+            if (worker != null)
+                return worker;
+
+            synchronized (this) {
+                if (disabled)
+                    return null;
+                if (allWorkers.size() < maxWorkers) {
+                    worker = startWorker();
+                    if (worker != null)
+                        allWorkers.add(worker);
+                    return worker;
+                }
+            }
+
+            // Check again now and then, a busy worker may have been killed meanwhile.
+            worker = idleWorkers.poll(100, TimeUnit.MILLISECONDS);
+            if (worker != null)
+                return worker;
+        }
+    }
+
+    private Worker startWorker() throws IOException {
+        ProcessBuilder pb = new ProcessBuilder("java",
+            "-D" + OUTPUT_LIMIT_PROPERTY + "=" + ProcessWatchdog.OUTPUT_LIMIT,
+            "-cp", codeTesterFolder.getPath(), WORKER_CLASS_NAME);
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        Worker worker = new Worker();
+        worker.process = pb.start();
+        worker.requests = new PrintWriter(new OutputStreamWriter(worker.process.getOutputStream(), StandardCharsets.UTF_8));
+        worker.replies = new BufferedReader(new InputStreamReader(worker.process.getInputStream(), StandardCharsets.UTF_8));
+
+        String hello = worker.replies.readLine();
+        if (!READY.equals(hello)) {
+            // The worker was not compiled.
+            disabled = true;
+            worker.process.destroyForcibly();
+            return null;
+        }
+        return worker;
+    }
+
+    private synchronized void discard(Worker worker) {
+        worker.process.destroyForcibly();
+        allWorkers.remove(worker);
+    }
+
+    // Stop all the workers.
+    synchronized void shutdown() {
+        disabled = true;
+        for (Worker worker : allWorkers) {
+            worker.requests.close();
+            worker.process.destroyForcibly();
+        }
+        allWorkers.clear();
+        idleWorkers.clear();
+    }
+}
@@ -0,0 +1,2 @@
+// Currently we support just these two languages.
+enum Language {Java, C};
@@ -0,0 +1,295 @@
+import java.io.*;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Compiles the next few students in the background while the grader reads
+ * the current one, and runs the first test case for each, so they are
+ * ready when the grader gets to them.
+ *
+ * When a student is selected, the PREFETCH_COUNT students after them in
+ * the list are queued, and work for any other student is cancelled, so
+ * jumping around never leaves the thread busy with students nobody looks
+ * at. A student asked for with request() is kept until it is done or the
+ * selection has moved past them, whichever comes first when the next
+ * student is selected; its compile and test result are in the caches by
+ * then. One student is done at a time, on a thread of the lowest priority,
+ * and nothing new is started while the GUI is busy with a compile or a
+ * test of its own, see setPaused().
+ *
+ * Every student is compiled in a build folder of its own, like in batch
+ * mode. The result of the test case goes to the ResultStore, and the
+ * compiled program to the CompileCache, so even a student that was not
+ * taken with take() compiles and tests quickly. The number of students can
+ * be set with the system property "gradingtool.prefetchCount", 0 turns
+ * prefetching off.
+ *
+ * When test cases change, regrade() runs them again for every student,
+ * after the students the grader is about to get to. Only the ResultStore
+ * is updated, the testers are released as soon as they are done.
+ */
+class Prefetcher {
+    static final int PREFETCH_COUNT = Integer.getInteger("gradingtool.prefetchCount", 2);
+
+    // The work for one student.
+    private class Task {
+        final File folder;
+        final SubmissionTester tester;
+        final List<String> log = new ArrayList<String>(); // Guarded by Prefetcher.this
+        int compileLogSize;
+        boolean bStarted;
+        boolean bDone;
+        boolean bCompiled;
+        boolean bDropped; // Nobody wants it any more, release it when it is done.
+        boolean bRequested; // Asked for with request(), kept when another student is selected until it is done.
+        final Set<String> testCaseNames = new TreeSet<String>(); // For regrade(), the test cases to run. Guarded by Prefetcher.this
+
+        Task(File folder, SubmissionTester assignmentTester) {
+            this.folder = folder;
+            this.tester = assignmentTester.forStudent(folder.getName()).withLog(new SubmissionTester.Log() {
+                public void log(String line) {
+                    synchronized (Prefetcher.this) {
+                        log.add(line);
+                    }
+                }
+            });
+        }
+    }
+
+    // Queued, running and finished work, by student. Guarded by this.
+    private final Map<String, Task> tasks = new LinkedHashMap<String, Task>();
+    // Test cases to run again, by student, done after the tasks above. Guarded by this.
+    private final Map<String, Task> regrades = new LinkedHashMap<String, Task>();
+    private boolean bPaused = false;
+    private boolean bShutdown = false;
+
+    Prefetcher() {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                work();
+            }
+        }, "Prefetcher");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * The grader selected a student, prefetch the ones after them.
+     *
+     * @param tester A tester of the assignment, forStudent() is used for each student.
+     * @param folders The student folders, in the order of the student list.
+     * @param index The selected student, -1 if none is selected yet.
+     */
+    synchronized void select(SubmissionTester tester, File[] folders, int index) {
+        Map<String, File> wanted = new LinkedHashMap<String, File>();
+        for (int i = index + 1; i < folders.length && wanted.size() < PREFETCH_COUNT; i++)
+            if (folders[i].isDirectory())
+                wanted.put(folders[i].getName(), folders[i]);
+
+        // The students up to the selected one, the grader has moved past them.
+        Set<String> passed = new HashSet<String>();
+        for (int i = 0; i <= index && i < folders.length; i++)
+            passed.add(folders[i].getName());
+
+        // Cancel what is no longer wanted.
+        for (Iterator<Task> it = tasks.values().iterator(); it.hasNext(); ) {
+            Task task = it.next();
+            String name = task.folder.getName();
+            if (wanted.containsKey(name) || (task.bRequested && !task.bDone && !passed.contains(name)))
+                continue;
+            it.remove();
+            drop(task);
+        }
+
+        for (Map.Entry<String, File> entry : wanted.entrySet())
+            if (!tasks.containsKey(entry.getKey()))
+                tasks.put(entry.getKey(), new Task(entry.getValue(), tester));
+        notifyAll();
+    }
+
+    /**
+     * Compile a student in the background even if they are not after the
+     * selected one, like a late submission that just came in. What was
+     * done for the student before is dropped, their files have changed.
+     */
+    synchronized void request(SubmissionTester tester, File folder) {
+        invalidate(folder.getName());
+        Task task = new Task(folder, tester);
+        task.bRequested = true;
+        tasks.put(folder.getName(), task);
+        notifyAll();
+    }
+
+    /**
+     * Run test cases again for every student, because they changed. A
+     * student that is still waiting for a regrade gets the test cases
+     * added to it.
+     *
+     * @param folders The student folders, in the order of the student list.
+     */
+    synchronized void regrade(SubmissionTester tester, File[] folders, Collection<String> testCaseNames) {
+        for (File folder : folders) {
+            if (!folder.isDirectory())
+                continue;
+            Task task = regrades.get(folder.getName());
+            if (task == null || task.bStarted) {
+                // One that is running stops after its current test, the new task runs all of them after it.
+                Task running = task;
+                task = new Task(folder, tester);
+                if (running != null) {
+                    running.bDropped = true;
+                    task.testCaseNames.addAll(running.testCaseNames);
+                }
+                regrades.remove(folder.getName());
+                regrades.put(folder.getName(), task);
+            }
+            task.testCaseNames.addAll(testCaseNames);
+        }
+        notifyAll();
+    }
+
+    // The files of a student changed or are gone, drop what was done for them.
+    synchronized void invalidate(String student) {
+        Task task = tasks.remove(student);
+        if (task != null)
+            drop(task);
+    }
+
+    /**
+     * The prefetched tester of a student, compiled, and the log of the
+     * compile. Null if the student was not compiled in the background, or
+     * is not done yet, what was started is cancelled then. The tester
+     * still logs to the prefetcher, use withLog() on it.
+     *
+     * @param log Gets the lines of the compile.
+     */
+    synchronized SubmissionTester take(String student, List<String> log) {
+        Task task = tasks.remove(student);
+        if (task == null)
+            return null;
+
+        if (!task.bDone || !task.bCompiled) {
+            drop(task);
+            return null;
+        }
+        log.addAll(task.log.subList(0, task.compileLogSize));
+        return task.tester;
+    }
+
+    // Do not start anything new while the GUI compiles or tests.
+    synchronized void setPaused(boolean bPaused) {
+        this.bPaused = bPaused;
+        notifyAll();
+    }
+
+    // Cancel everything, for example when another folder is opened.
+    synchronized void clear() {
+        for (Task task : tasks.values())
+            drop(task);
+        tasks.clear();
+        for (Task task : regrades.values())
+            drop(task);
+        regrades.clear();
+    }
+
+    synchronized void shutdown() {
+        clear();
+        bShutdown = true;
+        notifyAll();
+    }
+
+    // Cancel a task that may be running. Its build folder is released once it is done.
+    private void drop(Task task) {
+        task.bDropped = true;
+        if (!task.bStarted)
+            return;
+        if (task.bDone)
+            task.tester.release();
+        else
+            task.tester.cancel();
+    }
+
+    private void work() {
+        while (true) {
+            Task task;
+            synchronized (this) {
+                task = null;
+                while (!bShutdown && (bPaused || (task = nextTask()) == null)) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (bShutdown)
+                    return;
+                task.bStarted = true;
+            }
+
+            boolean bCompiled = prefetch(task);
+
+            synchronized (this) {
+                task.bDone = true;
+                task.bCompiled = bCompiled;
+                if (regrades.get(task.folder.getName()) == task) {
+                    // Nobody takes a regrade, only its results are kept.
+                    regrades.remove(task.folder.getName());
+                    task.bDropped = true;
+                }
+                if (task.bDropped)
+                    task.tester.release();
+            }
+        }
+    }
+
+    // The first student that was not started yet, the ones the grader gets to next first.
+    private Task nextTask() {
+        for (Task task : tasks.values())
+            if (!task.bStarted)
+                return task;
+        for (Task task : regrades.values())
+            if (!task.bStarted)
+                return task;
+        return null;
+    }
+
+    // Compile the student and run the first test case, or the ones to regrade, on the prefetch thread.
+    private boolean prefetch(Task task) {
+        SubmissionTester tester = task.tester;
+        if (!tester.compile(tester.listSourceFiles(task.folder)))
+            return false;
+
+        List<String> testCaseNames = new ArrayList<String>();
+        synchronized (this) {
+            task.compileLogSize = task.log.size();
+            if (task.bDropped)
+                return true;
+            testCaseNames.addAll(task.testCaseNames);
+        }
+
+        File[] testCases = tester.listTestCases();
+        if (testCaseNames.isEmpty()) {
+            if (testCases.length > 0)
+                tester.runTest(testCases[0].getName());
+            return true;
+        }
+
+        for (File testCase : testCases) {
+            synchronized (this) {
+                if (task.bDropped)
+                    break;
+            }
+            if (testCaseNames.contains(testCase.getName()))
+                tester.runTest(testCase.getName());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a test run within its limits: the time it takes, the CPU time it
+ * uses and the number of bytes it prints. When a limit is exceeded, the
+ * process and everything it started are killed, and the limit is kept as
+ * the verdict of the test.
+ *
+ * The CPU time is the sum of the user and system time of the process and
+ * its descendants, read from /proc/<pid>/stat, or from ProcessHandle.Info
+ * without /proc. The time of the children a process waited for is left
+ * out, they are counted as descendants already. A descendant that ended
+ * keeps the last time it was seen with. When the process only launches the
+ * program, like CodeTester, the process itself is not counted, the time of
+ * its JVM is not the program's.
+ *
+ * Descendants are remembered as they show up, so a server that forks
+ * itself away from its parent (like in 2240 A5) is killed, too. They are
+ * also killed when the run ends normally, so nothing outlives its test.
+ *
+ * The limits can be set with the system properties
+ * "gradingtool.wallTimeLimit" and "gradingtool.cpuTimeLimit" (seconds) and
+ * "gradingtool.outputLimit" (bytes).
+ */
+class ProcessWatchdog extends Thread {
+    static final long WALL_TIME_LIMIT = Long.getLong("gradingtool.wallTimeLimit", 120);
+    static final long CPU_TIME_LIMIT = Long.getLong("gradingtool.cpuTimeLimit", 60);
+    static final long OUTPUT_LIMIT = Long.getLong("gradingtool.outputLimit", 16 * 1024 * 1024);
+
+    private static final long POLL_INTERVAL = 100; // In milliseconds
+    private static final long TICKS_PER_SECOND = 100; // The unit of the times in /proc/<pid>/stat
+
+    private final Process process;
+    private final boolean bCountProcess;
+    private final long startTime = System.currentTimeMillis();
+    private final long cpuTimeBefore;
+    private final AtomicLong outputBytes = new AtomicLong();
+
+    // Every descendant seen so far, some may have left the tree by forking, with the CPU time it was last seen with.
+    private final Map<ProcessHandle, Long> descendants = new HashMap<ProcessHandle, Long>();
+
+    private volatile TestResult.Verdict verdict;
+    private volatile String reason;
+
+    /**
+     * The process may have run before, like a worker JVM, only the CPU time
+     * it uses from now on is counted.
+     *
+     * @param bCountProcess false if the process only launches the program, like CodeTester.
+     */
+    ProcessWatchdog(Process process, boolean bCountProcess) {
+        super("Process watchdog");
+        setDaemon(true);
+        this.process = process;
+        this.bCountProcess = bCountProcess;
+        this.cpuTimeBefore = getCpuTime();
+    }
+
+    public void run() {
+        try {
+            while (process.isAlive()) {
+                Thread.sleep(POLL_INTERVAL);
+                collectDescendants();
+
+                if (System.currentTimeMillis() - startTime > WALL_TIME_LIMIT * 1000)
+                    stop(TestResult.Verdict.TimeLimit, "The program did not end in " + WALL_TIME_LIMIT + " seconds.");
+                else if (getCpuTime() - cpuTimeBefore > CPU_TIME_LIMIT * 1000)
+                    stop(TestResult.Verdict.CpuLimit, "The program used more than " + CPU_TIME_LIMIT + " seconds of CPU time.");
+            }
+        } catch (InterruptedException e) {}
+    }
+
+    // The limits in a few words, a result depends on them.
+    static String describeLimits() {
+        return WALL_TIME_LIMIT + "s " + CPU_TIME_LIMIT + "s " + OUTPUT_LIMIT + "B";
+    }
+
+    /**
+     * Count what is read from the stream against the output limit.
+     */
+    InputStream watch(InputStream in) {
+        return new FilterInputStream(in) {
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0)
+                    addOutput(1);
+                return b;
+            }
+
+            public int read(byte[] b, int off, int len) throws IOException {
+                int count = super.read(b, off, len);
+                if (count > 0)
+                    addOutput(count);
+                return count;
+            }
+        };
+    }
+
+    // Count output that was not read through watch().
+    void addOutput(long bytes) {
+        if (outputBytes.addAndGet(bytes) > OUTPUT_LIMIT)
+            stop(TestResult.Verdict.OutputLimit, "The program printed more than " + OUTPUT_LIMIT + " bytes.");
+    }
+
+    /**
+     * Stop watching once the output has been read, and kill whatever the
+     * process left running.
+     */
+    void finish() {
+        interrupt();
+        destroyDescendants();
+    }
+
+    // The limit that was exceeded, null if none was.
+    TestResult.Verdict getVerdict() {
+        return verdict;
+    }
+
+    String getReason() {
+        return reason;
+    }
+
+    private synchronized void stop(TestResult.Verdict verdict, String reason) {
+        if (this.verdict == null) {
+            this.verdict = verdict;
+            this.reason = reason;
+        }
+
+        // Children first, they would not be our descendants any more once their parent is gone.
+        destroyDescendants();
+        process.destroyForcibly();
+    }
+
+    private synchronized void collectDescendants() {
+        Iterator<ProcessHandle> it = process.descendants().iterator();
+        while (it.hasNext()) {
+            ProcessHandle handle = it.next();
+            if (!descendants.containsKey(handle))
+                descendants.put(handle, 0L);
+        }
+    }
+
+    private synchronized void destroyDescendants() {
+        collectDescendants();
+        for (ProcessHandle handle : descendants.keySet())
+            handle.destroyForcibly();
+    }
+
+    // The CPU time of the program in milliseconds.
+    private long getCpuTime() {
+        long time = 0;
+        if (bCountProcess)
+            time = Math.max(getCpuTime(process.toHandle()), 0);
+
+        synchronized (this) {
+            for (Map.Entry<ProcessHandle, Long> entry : descendants.entrySet()) {
+                // The pid of one that ended may be used by another process by now.
+                if (entry.getKey().isAlive()) {
+                    long t = getCpuTime(entry.getKey());
+                    if (t > entry.getValue())
+                        entry.setValue(t);
+                }
+                time += entry.getValue();
+            }
+        }
+        return time;
+    }
+
+    // The CPU time of one process in milliseconds, or -1 if it cannot be read.
+    private static long getCpuTime(ProcessHandle handle) {
+        long ticks = getProcCpuTicks(handle.pid());
+        if (ticks >= 0)
+            return ticks * 1000 / TICKS_PER_SECOND;
+
+        Optional<Duration> duration = handle.info().totalCpuDuration();
+        return duration.isPresent() ? duration.get().toMillis() : -1;
+    }
+
+    // utime and stime from /proc/<pid>/stat, or -1 if it cannot be read.
+    private static long getProcCpuTicks(long pid) {
+        try {
+            String stat = new String(Files.readAllBytes(Paths.get("/proc/" + pid + "/stat")));
+
+            // The name of the program is in parentheses and may contain spaces.
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
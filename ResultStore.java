@@ -0,0 +1,167 @@
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.ArrayList;
+
+import static java.nio.file.StandardCopyOption.*;
+
+/**
+ * Keeps the result of the last run of every test case for every student,
+ * in "Temp/results/<assignment folder>", so a test case does not have to
+ * be run again when nothing it depends on has changed.
+ *
+ * A result depends on four things, which are kept with it as a Key:
+ *
+ * * The program: a hash of the build folder, without the files that
+ *   belong to test cases.
+ * * The test case file and the data files it names.
+ * * The result files of the test case, like "TestCase3Result" and
+ *   "TestCase3Result.out".
+ * * How the test was run, like "worker" or "CodeTester -proc", the
+ *   limits it ran with (see ProcessWatchdog and StreamingVerifier), and a
+ *   hash of the classes that ran and compared it.
+ *
+ * See DependencyTracker for which files belong to which test case.
+ *
+ * A stored result is only returned if all four are the same as now, so
+ * it never has to be deleted when something changes. There is one file
+ * per student and test case, "<student>/<test case>", with the key, the
+ * verdict and the lines of the result. Results that may be different the
+ * next time, like a program stopped for its time, are not stored.
+ */
+class ResultStore {
+    static final String FOLDER_NAME = "results";
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    // The number of lines of a file before the result: the key and the verdict.
+    private static final int HEADER_LINE_COUNT = 5;
+
+    private final File root;
+
+    /**
+     * @param root The folder of the results of one assignment.
+     */
+    ResultStore(File root) {
+        this.root = root;
+    }
+
+    /**
+     * What a result depends on.
+     */
+    static class Key {
+        final String programHash;
+        final String testCaseHash;
+        final String resultHash;
+        final String mode;
+
+        Key(String programHash, String testCaseHash, String resultHash, String mode) {
+            this.programHash = programHash;
+            this.testCaseHash = testCaseHash;
+            this.resultHash = resultHash;
+            this.mode = mode;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key)o;
+            return programHash.equals(k.programHash) && testCaseHash.equals(k.testCaseHash)
+                && resultHash.equals(k.resultHash) && mode.equals(k.mode);
+        }
+
+        public int hashCode() {
+            return programHash.hashCode() ^ testCaseHash.hashCode() ^ resultHash.hashCode() ^ mode.hashCode();
+        }
+
+        private List<String> toLines() {
+            List<String> lines = new ArrayList<String>();
+            lines.add(programHash);
+            lines.add(testCaseHash);
+            lines.add(resultHash);
+            lines.add(mode);
+            return lines;
+        }
+    }
+
+    /**
+     * A stored result with its key.
+     */
+    static class Entry {
+        final Key key;
+        final TestResult result;
+
+        Entry(Key key, TestResult result) {
+            this.key = key;
+            this.result = result;
+        }
+    }
+
+    private File getFile(String student, String testCaseName) {
+        return new File(root, student + File.separator + testCaseName);
+    }
+
+    /**
+     * The last stored result of a test case, whatever its key is.
+     *
+     * @return null if there is none.
+     */
+    Entry load(String student, String testCaseName) {
+        File file = getFile(student, testCaseName);
+        if (!file.exists())
+            return null;
+
+        try {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            if (lines.size() < HEADER_LINE_COUNT)
+                return null;
+
+            Key key = new Key(lines.get(0), lines.get(1), lines.get(2), lines.get(3));
+            TestResult result = new TestResult();
+            result.setVerdict(TestResult.Verdict.valueOf(lines.get(4)));
+            result.setRunMode(key.mode);
+            result.setStored(true);
+            result.addLines(lines.subList(HEADER_LINE_COUNT, lines.size()));
+            return new Entry(key, result);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * The stored result of a test case, if it has the given key.
+     *
+     * @return null if there is none, or if it was for something else.
+     */
+    TestResult lookup(String student, String testCaseName, Key key) {
+        Entry entry = load(student, testCaseName);
+        if (entry == null || !entry.key.equals(key))
+            return null;
+        return entry.result;
+    }
+
+    void store(String student, String testCaseName, Key key, TestResult result) {
+        File file = getFile(student, testCaseName);
+        File temp = new File(file.getPath() + "-" + Thread.currentThread().getId() + TEMP_FILE_SUFFIX);
+
+        List<String> lines = key.toLines();
+        lines.add(result.getVerdict().name());
+        for (String line : result.getLines())
+            lines.add(line);
+
+        try {
+            file.getParentFile().mkdirs();
+            Files.write(temp.toPath(), lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // The result just is not stored.
+            temp.delete();
+        }
+    }
+}
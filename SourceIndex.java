@@ -0,0 +1,192 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * What GradingTool needs to know about the structure of a source file,
+ * found in one pass when the file is loaded:
+ *
+ * * Where the header ends: the first line with "public" and "class".
+ *   Everything before it is the header, which privacy mode hides.
+ * * The lines that look like method or function signatures, found with
+ *   the same rules getMethodName() used to apply while searching
+ *   backwards from the selected line. Finding the method of a line is now
+ *   a binary search for the last signature at or before it.
+ * * How many of the method doc items are in the comment above each
+ *   signature.
+ */
+class SourceIndex {
+    static final String[] METHOD_DOC_ITEMS = {"method name", "parameters", "return value", "partners", "description"};
+
+    // How many lines above a signature are searched for its doc.
+    private static final int MAX_DOC_LINES = 12;
+
+    private static final Pattern C_FUNCTION_PATTERN = Pattern.compile("^\\s*[a-z]+\\s+\\S+\\s*[(].*[)].*");
+
+    private final int headerEnd;
+
+    // Lines that end the backward search, in order. The name is null for
+    // lines like "public class A {", where the search stopped without a name.
+    private final int[] signatureLines;
+    private final String[] names;
+    private final int[] docItemCounts;
+
+    /**
+     * @param lines The lines of the file, with tabs already replaced.
+     */
+    SourceIndex(List<String> lines, Language language) {
+        int end = lines.size();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.indexOf("public") >= 0 && line.indexOf("class") >= 0) {
+                end = i;
+                break;
+            }
+        }
+        headerEnd = end;
+
+        String[] docItems = getDocItems(language);
+        List<Integer> found = new ArrayList<Integer>();
+        List<String> foundNames = new ArrayList<String>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = normalize(lines.get(i));
+            if (!isSignature(line, language))
+                continue;
+
+            found.add(i);
+            int index = line.indexOf("(");
+            if (index < 0) {
+                foundNames.add(null);
+            }
+            else {
+                String str = line.substring(0, index).trim();
+                foundNames.add(str.substring(str.lastIndexOf(" ") + 1));
+            }
+        }
+
+        signatureLines = new int[found.size()];
+        names = foundNames.toArray(new String[foundNames.size()]);
+        docItemCounts = new int[found.size()];
+        for (int i = 0; i < signatureLines.length; i++) {
+            signatureLines[i] = found.get(i);
+            if (names[i] != null)
+                docItemCounts[i] = countDocItems(lines, signatureLines[i], docItems);
+        }
+    }
+
+    private static String[] getDocItems(Language language) {
+        String[] items = METHOD_DOC_ITEMS.clone();
+        if (language == Language.C)
+            items[0] = "function name";
+        return items;
+    }
+
+    // The header ends at the first class, the whole file is header if there is none.
+    boolean isInHeader(int line) {
+        return line < headerEnd;
+    }
+
+    int getHeaderEnd() {
+        return headerEnd;
+    }
+
+    /**
+     * Whether privacy mode hides a line of the header, that is whether it
+     * has "name", "id" or "email" in it.
+     */
+    static boolean isSensitive(String line) {
+        String lower = line.toLowerCase();
+        return lower.indexOf("name") >= 0 || lower.indexOf("id") >= 0 || lower.indexOf("email") >= 0;
+    }
+
+    /**
+     * The lines of the method signatures, in order.
+     */
+    List<Integer> getMethodLines() {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < signatureLines.length; i++)
+            if (names[i] != null)
+                list.add(signatureLines[i]);
+        return list;
+    }
+
+    /**
+     * The name of the method that contains the line, null if there is none.
+     */
+    String getMethodName(int line) {
+        int i = findSignature(line);
+        return i < 0 ? null : names[i];
+    }
+
+    /**
+     * How many of the doc items are in the comment above the method that
+     * contains the line.
+     */
+    int getDocItemCount(int line) {
+        int i = findSignature(line);
+        return i < 0 ? 0 : docItemCounts[i];
+    }
+
+    // The last signature at or before the line, -1 if there is none.
+    private int findSignature(int line) {
+        int i = Arrays.binarySearch(signatureLines, line);
+        if (i < 0)
+            i = -i - 2; // Before the insertion point
+        return i;
+    }
+
+    // The line as the signature rules see it.
+    private static String normalize(String line) {
+        line = line.replace(';', ' ').trim();
+        line = cutString(line, "//");
+        line = cutString(line, "throws");
+        return line;
+    }
+
+    private static boolean isSignature(String line, Language language) {
+        if (!(line.endsWith(")") || line.endsWith("{") || line.endsWith(",")))
+            return false;
+
+        if (line.indexOf("=") >= 0)
+            return false;
+
+        if (language == Language.Java)
+            return line.startsWith("p");
+
+        return language == Language.C
+            && !line.startsWith("if ") && !line.startsWith("if(") && !line.startsWith("for ") && !line.startsWith("for(")
+            && !line.startsWith("while ") && !line.startsWith("while(") && !line.startsWith("else ")
+            && C_FUNCTION_PATTERN.matcher(line).matches();
+    }
+
+    // Up to MAX_DOC_LINES lines above the signature, until a brace.
+    private static int countDocItems(List<String> lines, int signatureLine, String[] docItems) {
+        StringBuilder searchArea = new StringBuilder();
+        int maxSearchLength = MAX_DOC_LINES;
+        for (int i = signatureLine - 1; i >= 0 && maxSearchLength-- > 0; i--) {
+            String line = lines.get(i);
+            if (line.indexOf("}") >= 0 || line.indexOf("{") >= 0)
+                break;
+            searchArea.append(line.toLowerCase()).append('\n');
+        }
+
+        int count = 0;
+        String text = searchArea.toString();
+        for (String item : docItems)
+            if (text.indexOf(item) >= 0)
+                count++;
+        return count;
+    }
+
+    /**
+     * If str contains from, then return the portion of str before the first
+     * occurance of from. Otherwise return str.
+     */
+    private static String cutString(String str, String from) {
+        int index = str.indexOf(from);
+        if (index > 0)
+            str = str.substring(0, index).trim();
+        return str;
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.AbstractListModel;
+
+/**
+ * The lines of the source code viewer. The file is kept as one String with
+ * the offsets of its lines, and a row is only formatted (line number, tabs
+ * replaced, privacy text) when the list asks for it, which is only for the
+ * rows it shows. Loading a file fires one event, not one per line.
+ */
+class SourceViewerModel extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+
+    static final String PRIVACY_TEXT = "***** Replaced by privacy text *****";
+
+    private static final String TAB_SPACES = "    ";
+
+    private String text = "";
+    private int[] lineStarts = new int[0];
+    private int[] lineEnds = new int[0];
+    private int lineCount = 0;
+    private int widestLine = -1;
+
+    // The number of the first line, or -1 to show no numbers.
+    private int firstLineNumber = -1;
+
+    // In privacy mode, the index of the file whose header is hidden.
+    private SourceIndex privacyIndex;
+
+    /**
+     * Show text without line numbers, like a message.
+     */
+    void setMessage(String message) {
+        setText(message, -1);
+    }
+
+    /**
+     * Show the lines of a file. Lines end with "\n", "\r\n" or "\r".
+     */
+    void setText(String text, int firstLineNumber) {
+        // Tell the list all rows are gone first, so it drops its selection.
+        int oldCount = lineCount;
+        lineCount = 0;
+        if (oldCount > 0)
+            fireIntervalRemoved(this, 0, oldCount - 1);
+
+        this.text = text;
+        this.firstLineNumber = firstLineNumber;
+        this.privacyIndex = null;
+
+        int[] starts = new int[64];
+        int[] ends = new int[64];
+        int count = 0;
+        int widest = -1;
+        int widestLength = -1;
+        int start = 0;
+        int length = text.length();
+        while (start < length) {
+            int end = start;
+            int width = 0;
+            char c = 0;
+            while (end < length && (c = text.charAt(end)) != '\n' && c != '\r') {
+                width += c == '\t' ? TAB_SPACES.length() : 1;
+                end++;
+            }
+
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            if (width > widestLength) {
+                widest = count;
+                widestLength = width;
+            }
+            count++;
+
+            start = end + 1;
+            if (c == '\r' && start < length && text.charAt(start) == '\n')
+                start++;
+        }
+
+        lineStarts = starts;
+        lineEnds = ends;
+        lineCount = count;
+        widestLine = widest;
+        if (count > 0)
+            fireIntervalAdded(this, 0, count - 1);
+    }
+
+    void clear() {
+        setText("", -1);
+    }
+
+    /**
+     * Hide the sensitive lines in the header of the file, or show them
+     * again with null.
+     */
+    void setPrivacyIndex(SourceIndex index) {
+        privacyIndex = index;
+        if (lineCount > 0)
+            fireContentsChanged(this, 0, lineCount - 1);
+    }
+
+    public int getSize() {
+        return lineCount;
+    }
+
+    public String getElementAt(int index) {
+        String line = getLine(index);
+
+        // Replace blank lines with indentation check markings.
+        //if (line.trim().length() == 0)
+        //    line = "|---|---|---|---|";
+
+        /**
+         * Todo: Replace open and close double quotation marks with ".
+         *
+         * The source of this problem is students copy text from assignment
+         * sheet into their source code to use as part of the documentation.
+         *
+         * Sometimes they copy non-standard characters, causing compiling
+         * errors in their code. The only such characters that's causing
+         * the problem are open and close double quotation marks, the ones
+         * that looked sideways. Replace them with the standard one ", the
+         * one that looked straight solves the problem.
+         *
+         * Whether this will cause a compiling error is dependent on the
+         * compiling environment, but it's better to get it fixed.
+         */
+
+        /**
+         * In privacy mode, we replace any line that contains sensitive word
+         * with a privacy text.
+         */
+        if (privacyIndex != null && privacyIndex.isInHeader(index) && SourceIndex.isSensitive(line))
+            line = PRIVACY_TEXT;
+
+        if (firstLineNumber < 0)
+            return line;
+        return String.format("%4d | ", index + firstLineNumber) + line;
+    }
+
+    /**
+     * The widest row, for JList.setPrototypeCellValue(), so the list does
+     * not format every row to find out how wide it is.
+     */
+    String getPrototype() {
+        if (widestLine < 0)
+            return "";
+        // Without the privacy text, which can be narrower than the line it hides.
+        String line = getLine(widestLine);
+        return firstLineNumber < 0 ? line : String.format("%4d | ", widestLine + firstLineNumber) + line;
+    }
+
+    /**
+     * The lines with tabs replaced, made one at a time as they are read.
+     */
+    List<String> getLines() {
+        return new AbstractList<String>() {
+            public String get(int index) {
+                return getLine(index);
+            }
+
+            public int size() {
+                return lineCount;
+            }
+        };
+    }
+
+    // Replace tab characters with 4 spaces to correct the indentation.
+    private String getLine(int index) {
+        if (index < 0 || index >= lineCount)
+            throw new IndexOutOfBoundsException("Line " + index + " of " + lineCount);
+        String line = text.substring(lineStarts[index], lineEnds[index]);
+        if (line.indexOf('\t') >= 0)
+            line = line.replace("\t", TAB_SPACES);
+        return line;
+    }
+}
@@ -0,0 +1,220 @@
+import java.io.*;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the checks GradingTool does when a line of source code is clicked
+ * on every source file of every student at once, without the GUI.
+ *
+ * To run it from the folder where GradingTool is:
+ *
+ * "java GradingTool -checks CSCI-1620-5-S15-A2 8"
+ *
+ * The arguments are the same as for "-batch". Every file is indexed with
+ * SourceIndex, several files at a time, and checked for
+ *
+ * * the method doc above every method, which should have all the items of
+ *   SourceIndex.METHOD_DOC_ITEMS,
+ * * a comment in the header of the file, before the class, and
+ * * the student's ID (the name of their folder) outside the header, where
+ *   privacy mode does not hide it.
+ *
+ * What is found is written to "static-checks.txt" in the student's folder
+ * as feedback lines ("-1 Circle.getArea() Line: 12. Missing method doc."),
+ * the same format the "Add / Save" button writes, so they can be copied
+ * into the feedback area and edited there. A table of every method of
+ * every student is written next to the submission folder, for example
+ * "CSCI-1620-5-S15-A2-checks.txt".
+ *
+ * For example, a student "alice" with one file Echo.java, which starts
+ * with an import and has a main() without a doc on line 3, gets
+ *
+ * -1 Echo Missing file header.
+ * -1 Echo.main() Line: 3. Missing method doc.
+ *
+ * and these rows in the table:
+ *
+ * alice   Echo            2   No header
+ * alice   Echo.main()     3   0/5 doc items
+ *
+ * Like in the GUI, only Java methods that start with an access modifier
+ * are found.
+ */
+class StaticChecker {
+    static final String FILE_NAME_CHECKS = "static-checks.txt";
+    static final String FILE_NAME_TABLE_SUFFIX = "-checks.txt";
+
+    // The points of each kind of finding, the grader can change them in the feedback.
+    private static final String POINTS_MISSING_DOC = "-1";
+    private static final String POINTS_INCORRECT_DOC = "-0.5";
+    private static final String POINTS_MISSING_HEADER = "-1";
+
+    private static final String NEW_LINE = "\n";
+
+    private final File submissionFolder;
+    private final int workerCount;
+
+    // What was found in one file.
+    private static class FileResult {
+        List<String> feedback = new ArrayList<String>();
+        List<String> rows = new ArrayList<String>();
+        List<String> privacyLines = new ArrayList<String>();
+        int methodCount;
+    }
+
+    StaticChecker(File submissionFolder, int workerCount) {
+        this.submissionFolder = submissionFolder;
+        this.workerCount = workerCount;
+    }
+
+    static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java GradingTool -checks <submission folder> [number of workers]");
+            return;
+        }
+
+        int workerCount = Runtime.getRuntime().availableProcessors();
+        if (args.length > 1)
+            workerCount = Integer.parseInt(args[1]);
+
+        StaticChecker checker = new StaticChecker(new File(args[0]), workerCount);
+        if (!checker.run())
+            System.exit(1);
+    }
+
+    /**
+     * Check all the students.
+     *
+     * @return false if the assignment cannot be recognized from the folder name.
+     */
+    boolean run() {
+        String folderName = submissionFolder.getName();
+        int courseID = SubmissionTester.parseCourseID(folderName);
+        int assignmentNum = SubmissionTester.parseAssignmentNumber(folderName);
+        final Language language = SubmissionTester.getLanguage(courseID);
+        if (courseID < 0 || assignmentNum < 0 || language == null) {
+            System.out.println("Cannot find a known course and assignment number in folder name: " + folderName);
+            return false;
+        }
+
+        File[] students = submissionFolder.listFiles(new FileFilter() {
+            public boolean accept(File f) {
+                return f.isDirectory();
+            }
+        });
+        if (students == null) {
+            System.out.println("Cannot open folder: " + submissionFolder.getAbsolutePath());
+            return false;
+        }
+        Arrays.sort(students);
+
+        // Only the list of source files is needed, the tester never compiles.
+        SubmissionTester tester = new SubmissionTester(courseID, assignmentNum, language, null, null, null, null);
+
+        long startTime = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        List<List<Future<FileResult>>> futures = new ArrayList<List<Future<FileResult>>>();
+        for (final File student : students) {
+            List<Future<FileResult>> studentFutures = new ArrayList<Future<FileResult>>();
+            for (final File file : tester.listSourceFiles(student)) {
+                studentFutures.add(executor.submit(new Callable<FileResult>() {
+                    public FileResult call() {
+                        return check(file, student.getName(), language);
+                    }
+                }));
+            }
+            futures.add(studentFutures);
+        }
+
+        StringBuilder table = new StringBuilder();
+        table.append("Student\tLocation\tLine\tResult" + NEW_LINE);
+        StringBuilder privacy = new StringBuilder();
+        int fileCount = 0;
+        int methodCount = 0;
+        int findingCount = 0;
+        for (int i = 0; i < students.length; i++) {
+            StringBuilder feedback = new StringBuilder();
+            for (Future<FileResult> future : futures.get(i)) {
+                FileResult result;
+                try {
+                    result = future.get();
+                } catch (Exception e) {
+                    System.out.println(students[i].getName() + ": " + e);
+                    continue;
+                }
+
+                for (String line : result.feedback)
+                    feedback.append(line).append(NEW_LINE);
+                for (String row : result.rows)
+                    table.append(students[i].getName()).append("\t").append(row).append(NEW_LINE);
+                for (String line : result.privacyLines)
+                    privacy.append(students[i].getName()).append("\t").append(line).append(NEW_LINE);
+                fileCount++;
+                methodCount += result.methodCount;
+                findingCount += result.feedback.size();
+            }
+            FileUtil.writeFile(new File(students[i], FILE_NAME_CHECKS).getPath(), feedback.toString());
+        }
+        executor.shutdown();
+
+        table.append(NEW_LINE + "Checked " + methodCount + " methods in " + fileCount + " files of "
+            + students.length + " students, " + findingCount + " feedback lines." + NEW_LINE);
+        if (privacy.length() > 0)
+            table.append(NEW_LINE + "Student IDs outside the header:" + NEW_LINE).append(privacy);
+
+        System.out.print(table);
+        FileUtil.writeFile(new File(submissionFolder.getAbsoluteFile().getParentFile(), folderName + FILE_NAME_TABLE_SUFFIX).getPath(), table.toString());
+        System.out.println("Done in " + (System.currentTimeMillis() - startTime) + " ms.");
+        return true;
+    }
+
+    // Check one file, the lines are numbered from 1 like in the source code viewer.
+    private static FileResult check(File file, String student, Language language) {
+        FileResult result = new FileResult();
+
+        String[] inputLines = FileUtil.readText(file.getPath()).split("\r\n|\r|\n");
+        List<String> lines = new ArrayList<String>(inputLines.length);
+        for (String line : inputLines)
+            lines.add(line.replace("\t", "    "));
+        SourceIndex index = new SourceIndex(lines, language);
+
+        // Use file name as class name, like GradingTool does.
+        String className = file.getName();
+        if (className.indexOf(".") >= 0)
+            className = className.substring(0, className.indexOf("."));
+
+        // A header with no comment at all. A file without a class is all header, and is not checked.
+        if (index.getHeaderEnd() < lines.size()) {
+            boolean hasComment = false;
+            for (int i = 0; i < index.getHeaderEnd() && !hasComment; i++)
+                hasComment = lines.get(i).indexOf("//") >= 0 || lines.get(i).indexOf("/*") >= 0;
+            result.rows.add(className + "\t" + (index.getHeaderEnd() + 1) + "\t" + (hasComment ? "Header" : "No header"));
+            if (!hasComment)
+                result.feedback.add(POINTS_MISSING_HEADER + " " + className + " Missing file header.");
+        }
+
+        for (int line : index.getMethodLines()) {
+            String location = className + "." + index.getMethodName(line) + "()";
+            int docItemCount = index.getDocItemCount(line);
+            result.rows.add(location + "\t" + (line + 1) + "\t" + docItemCount + "/" + SourceIndex.METHOD_DOC_ITEMS.length + " doc items");
+            result.methodCount++;
+
+            if (docItemCount == 0)
+                result.feedback.add(POINTS_MISSING_DOC + " " + location + " Line: " + (line + 1) + ". Missing method doc.");
+            else if (docItemCount < SourceIndex.METHOD_DOC_ITEMS.length)
+                result.feedback.add(POINTS_INCORRECT_DOC + " " + location + " Line: " + (line + 1) + ". Incorrect method doc format.");
+        }
+
+        // Privacy mode only hides the header.
+        String id = student.toLowerCase();
+        for (int i = index.getHeaderEnd(); i < lines.size(); i++)
+            if (id.length() > 0 && lines.get(i).toLowerCase().indexOf(id) >= 0)
+                result.privacyLines.add(file.getName() + "\t" + (i + 1));
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.List;
+
+/**
+ * Compares the output of a test run with the expected result while the
+ * program is still running, so a run that has clearly gone wrong can be
+ * stopped instead of being waited for.
+ *
+ * Each line is compared with the next expected line, ignoring leading and
+ * trailing spaces. A line that matches one of the few expected lines after
+ * that instead skips the ones in between as missing, so one missing or
+ * extra line does not make every later line different. Lines that matched
+ * nothing and expected lines that were skipped are paired up as changed
+ * lines, so a changed line counts once. This only roughly counts the
+ * differences, verifyOutput() in SubmissionTester finds the exact ones
+ * with LineDiff. A run should be stopped when
+ *
+ * * more lines than the mismatch budget were different, or
+ * * it printed more than the length multiple times the expected number
+ *   of lines, plus some slack.
+ *
+ * Both limits can be set with the system properties
+ * "gradingtool.mismatchBudget" and "gradingtool.lengthMultiple", 0 turns
+ * a limit off. The full comparison is still done by verifyOutput() on
+ * the lines that were collected.
+ */
+class StreamingVerifier {
+    static final int MISMATCH_BUDGET = Integer.getInteger("gradingtool.mismatchBudget", 20);
+    static final int LENGTH_MULTIPLE = Integer.getInteger("gradingtool.lengthMultiple", 10);
+
+    // Lines allowed on top of the length multiple, so short results do not stop a run too soon.
+    private static final int LENGTH_SLACK = 100;
+
+    // How many expected lines ahead a line is looked for.
+    private static final int LOOKAHEAD = 50;
+
+    private final List<String> expectedLines;
+    private final int mismatchBudget;
+    private final long maxLines;
+
+    private int lineCount = 0;
+    private int next = 0; // The expected line the next output line should match.
+    private int mismatchCount = 0;
+    private int unmatchedCount = 0; // Lines since the last match that matched no expected line.
+    private String stopReason;
+
+    StreamingVerifier(List<String> expectedLines) {
+        this(expectedLines, MISMATCH_BUDGET, LENGTH_MULTIPLE);
+    }
+
+    StreamingVerifier(List<String> expectedLines, int mismatchBudget, int lengthMultiple) {
+        this.expectedLines = expectedLines;
+        this.mismatchBudget = mismatchBudget;
+        this.maxLines = lengthMultiple > 0 ? (long)lengthMultiple * expectedLines.size() + LENGTH_SLACK : -1;
+    }
+
+    // The limits in a few words, a result depends on them.
+    static String describeLimits() {
+        return MISMATCH_BUDGET + "/" + LENGTH_MULTIPLE;
+    }
+
+    /**
+     * Compare the next line of output.
+     *
+     * @return false if the run should be stopped, see getStopReason().
+     */
+    boolean lineAdded(String line) {
+        if (stopReason != null)
+            return false;
+
+        lineCount++;
+        if (maxLines >= 0 && lineCount > maxLines) {
+            stopReason = "The output is more than " + maxLines + " lines long, "
+                + expectedLines.size() + " lines were expected.";
+            return false;
+        }
+        String trimmed = line.trim();
+        int end = Math.min(next + LOOKAHEAD, expectedLines.size());
+        int i;
+        for (i = next; i < end; i++)
+            if (trimmed.equals(expectedLines.get(i).trim()))
+                break;
+
+        if (i < end) {
+            // The expected lines before this one are missing, or were changed into the unmatched lines.
+            mismatchCount += Math.max(i - next - unmatchedCount, 0);
+            unmatchedCount = 0;
+            next = i + 1;
+        }
+        else {
+            // An extra line, or a changed one.
+            mismatchCount++;
+            unmatchedCount++;
+        }
+
+        if (mismatchBudget > 0 && mismatchCount > mismatchBudget) {
+            stopReason = "More than " + mismatchBudget + " lines of the output are different from the expected output.";
+            return false;
+        }
+        return true;
+    }
+
+    // Why the run should be stopped, null if it should not.
+    String getStopReason() {
+        return stopReason;
+    }
+}
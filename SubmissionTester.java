@@ -0,0 +1,1327 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.function.BooleanSupplier;
+
+import static java.nio.file.StandardCopyOption.*;
+
+/**
+ * Compiles and tests the submission of one student for one assignment.
+ *
+ * Source code files and the files from the assignment folder are copied to
+ * a build folder and compiled there. Every test run gets a fresh copy of
+ * the build folder to launch CodeTester from, so test runs of the same
+ * student can happen at the same time. The folders come from a
+ * WorkspaceManager. This class has no GUI, so it is used both by
+ * GradingTool and by BatchGrader. Messages that GradingTool used to put
+ * into its output area are passed to a Log.
+ */
+class SubmissionTester {
+    interface Log {
+        void log(String line);
+    }
+
+    static final String TEST_CASE_RESULT_FILE_NAME_SUFFIX = "Result";
+    static final String FILE_NAME_COMMON_ISSUES = "CommonIssues.txt";
+
+    private static final String CODE_TESTER_CLASS_NAME = "CodeTester";
+    private static final String CODE_TESTER_FAST_FOLDER_NAME = "CodeTester-old";
+    static final String CODE_TESTER_ACCURATE_FOLDER_NAME = "CodeTester";
+    private static final String CODE_TESTER_AGENT_OPTION = "-agent";
+    private static final String CODE_TESTER_PROC_OPTION = "-proc";
+    private static final String CODE_TESTER_EXPECT_OPTION = "-expect";
+    private static final String CODE_TESTER_TIMESTAMP_FAILURE = "Cannot match input and output lines.";
+    private static final String JAVA_SOURCES_FILE_NAME = "sources";
+    private static final String RUN_MODE_WORKER = "worker";
+
+    // A program that uses any of these needs a JVM of its own, see canUseWorkers().
+    private static final String[] WORKER_UNSAFE_CLASS_PREFIXES = {
+        "java/awt/", "javax/swing/", "javafx/",                            // A GUI, and EXIT_ON_CLOSE
+        "java/lang/Thread", "java/util/Timer", "java/util/concurrent/",     // Threads
+        "java/lang/Runtime", "java/lang/Process",                          // exit(), halt() and processes
+        "java/io/File", "java/io/RandomAccessFile", "java/nio/file/", "java/nio/channels/" // Files
+    };
+
+    // The versions of the compilers by name, they do not change while the tool runs.
+    private static final Map<String, String> toolVersions = new HashMap<String, String>();
+
+    // Our classes that decide what a test result says, besides the CodeTester classes.
+    private static final String[] RESULT_CLASS_NAMES = {
+        "SubmissionTester", "StreamingVerifier", "LineDiff", "FileVerifier", "TestResult"
+    };
+
+    // Hashes of the classes that run and compare a test, by CodeTester folder, see getTesterHash().
+    private static final Map<String, String> testerHashes = new HashMap<String, String>();
+
+    // Classes that open a file when they are made with a file name.
+    private static final String[] FILE_NAME_CLASSES = {
+        "java/io/PrintWriter", "java/io/PrintStream", "java/util/Formatter"
+    };
+
+    private final int courseID;
+    private final int assignmentNum;
+    private final Language language;
+    private final WorkspaceManager workspaces;
+    private final JavaWorkerPool workers;
+    private final String student;
+    private final Log logger;
+    
+    // Where the program was compiled, null if it was not compiled yet.
+    private volatile File buildFolder;
+
+    // A hash of the compiled program for the ResultStore, null if it is unknown.
+    private volatile String programHash;
+
+    // Whether a worker can run the compiled program, see isWorkerSafe().
+    private volatile boolean bWorkerSafe = false;
+
+    // What compile() logs, so that it can be kept in the compile cache.
+    private List<String> compileLog;
+
+    // The process of the test being run, so that it can be cancelled.
+    private final AtomicReference<Process> runningProcess = new AtomicReference<Process>();
+    private volatile boolean bCancelled = false;
+
+    // If we are currently on Windows or not
+    private boolean m_bWindows = false;
+
+    /**
+     * @param workers Runs Java tests without starting CodeTester, can be null.
+     * @param student Name of the student's folder, used to name working folders.
+     *                It can be null if this tester is not going to compile anything.
+     */
+    SubmissionTester(int courseID, int assignmentNum, Language language, WorkspaceManager workspaces, JavaWorkerPool workers, String student, Log logger) {
+        this.courseID = courseID;
+        this.assignmentNum = assignmentNum;
+        this.language = language;
+        this.workspaces = workspaces;
+        this.workers = workers;
+        this.student = student;
+        this.logger = logger;
+
+        if (System.getProperty("os.name").toLowerCase().startsWith("windows"))
+            m_bWindows = true;
+    }
+
+    // A folder name will be like "CSCI-2240-2-F15-A1", we are trying to find the "2240" as course ID.
+    // Returns -1 if there is no course ID in the name.
+    static int parseCourseID(String folderName) {
+        int index1 = folderName.indexOf("-");
+        if (index1 < 0)
+            return -1;
+
+        String str = folderName.substring(index1 + 1);
+        int index2 = str.indexOf("-");
+        if (index2 < 0)
+            return -1;
+
+        try {
+            return Integer.parseInt(str.substring(0, index2));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Set the language of the course at here. Returns null for an unrecognized course.
+    static Language getLanguage(int courseID) {
+        if (courseID == 1620 || courseID == 1420)
+            return Language.Java;
+        else if (courseID == 2240)
+            return Language.C;
+        else
+            return null;
+    }
+
+    // For late and second chance submissions, "-L" or "-S" will be added to the end of the name.
+    static SubmissionType parseSubmissionType(String folderName) {
+        if (folderName.endsWith("-S"))
+            return SubmissionType.SecondChance;
+        else if (folderName.endsWith("-L"))
+            return SubmissionType.Late;
+        else
+            return SubmissionType.Normal;
+    }
+
+    // The total of a late or second chance submission is multiplied by this.
+    static double getPointsFactor(SubmissionType submissionType, Language language) {
+        double factor = 1;
+        switch (submissionType) {
+            case SecondChance:
+                if (language == Language.Java)
+                    factor = 0.85;
+                else if (language == Language.C)
+                    factor = 0.7;
+                break;
+            case Late:
+                if (language == Language.Java)
+                    factor = 0.65;
+                else if (language == Language.C)
+                    factor = 0.5;
+                break;
+            default:
+                break;
+        }
+        return factor;
+    }
+
+    // A folder name will be like "CSCI-2240-2-F15-A1", we are trying to find the "1" as assignment number.
+    // Returns -1 if there is no assignment number in the name.
+    static int parseAssignmentNumber(String folderName) {
+        String name = folderName;
+        // We need to remove the "-L" or "-S" first.
+        if (parseSubmissionType(name) != SubmissionType.Normal)
+            name = name.substring(0, name.length() - 2);
+
+        int index1 = name.lastIndexOf("-A");
+        if (index1 < 0)
+            return -1;
+
+        try {
+            return Integer.parseInt(name.substring(index1 + 2));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // A tester of the same assignment for another student.
+    SubmissionTester forStudent(String student) {
+        return new SubmissionTester(courseID, assignmentNum, language, workspaces, workers, student, logger);
+    }
+
+    // A tester that shares the compiled program with this one but logs elsewhere.
+    SubmissionTester withLog(Log logger) {
+        SubmissionTester tester = new SubmissionTester(courseID, assignmentNum, language, workspaces, workers, student, logger);
+        tester.buildFolder = buildFolder;
+        tester.programHash = programHash;
+        tester.bWorkerSafe = bWorkerSafe;
+        return tester;
+    }
+
+    // Give the build folder back to the WorkspaceManager.
+    void release() {
+        workspaces.release(buildFolder);
+        buildFolder = null;
+        programHash = null;
+        bWorkerSafe = false;
+    }
+
+    /**
+     * Find the path where the configuration for current assignment is located.
+     *
+     * @return A relative path to the folder that contains the configuration
+     *         for current assignment
+     */
+    String getAssignmentFolderName() {
+        return "Assignments-" + courseID + File.separator + "A" + assignmentNum;
+    }
+
+    /**
+     * Is the given file a source code file or not.
+     * @param fileName Absolute or relative path to a file.
+     * @return true if fileName is a source code file.
+     */
+    boolean isSourceCodeFile(String fileName) {
+        fileName = fileName.toLowerCase();
+
+        if (language == Language.Java) {
+            if (fileName.endsWith(".java"))
+                return true;
+        }
+        else if (language == Language.C) {
+            if (fileName.endsWith(".c") ||
+                fileName.endsWith(".h"))
+                return true;
+
+            // For 2240 A3, 3 extra files are part of the submission.
+            if (courseID == 2240 && assignmentNum == 3 && fileName.startsWith("prog"))
+                return true;
+        }
+
+        return false;
+    }
+
+    // Get a clean list of files in a student's folder, only source code files count.
+    File[] listSourceFiles(File studentFolder) {
+        File[] fileNames = studentFolder.listFiles();
+        if (fileNames == null)
+            return new File[0];
+        Arrays.sort(fileNames);
+
+        List<File> list = new ArrayList<File>();
+        for (File f: fileNames) {
+            if (f != null && isSourceCodeFile(f.getName()))
+                list.add(f);
+        }
+        return list.toArray(new File[list.size()]);
+    }
+
+    // Find the test cases for this assignment, sorted by name.
+    File[] listTestCases() {
+        File[] files = new File(getAssignmentFolderName()).listFiles();
+        if (files == null)
+            return new File[0];
+        Arrays.sort(files);
+
+        List<File> list = new ArrayList<File>();
+        for (File f: files) {
+            if (f != null && Pattern.matches("TestCase\\d*", f.getName()))
+                list.add(f);
+        }
+        return list.toArray(new File[list.size()]);
+    }
+
+    private void log(String log) {
+        if (compileLog != null)
+            compileLog.add(log);
+        logger.log(log);
+    }
+
+    String getCExecutableName() {
+        if (m_bWindows)
+            return "a.exe";
+        else
+            return "a.out";
+    }
+
+    /**
+     * Copy the given source code files to the working folder and compile
+     * them according to the command defined in the first test case file.
+     *
+     * @return true if the program was compiled without errors.
+     */
+    boolean compile(File[] sourceFiles) {
+        bCancelled = false;
+        release();
+        File folder = workspaces.acquire(student, WorkspaceManager.BUILD_FOLDER_NAME);
+        copyToWorkFolder(sourceFiles, folder);
+
+        log("Compiling...");
+
+        File[] testCaseNames = listTestCases();
+        if (testCaseNames.length == 0) {
+            log("Cannot find any test case for this assignment.");
+            workspaces.release(folder);
+            return false;
+        }
+
+        // The same files compiled the same way always give the same result.
+        CompileCache cache = new CompileCache(new File(workspaces.getRoot(), CompileCache.FOLDER_NAME));
+        String key = null;
+        try {
+            key = cache.computeKey(listCompileInputs(folder), getCompilerDescription() + " " + readFirstLine(testCaseNames[0]));
+            CompileCache.Entry entry = cache.lookup(key);
+            if (entry != null) {
+                log("Using the result of an earlier compile of the same files.");
+                for (String line : entry.getLog())
+                    log(line);
+                entry.restore(folder);
+                setBuildFolder(folder);
+                return true;
+            }
+        } catch (IOException e) {
+            log("Compile cache: " + e.getMessage());
+        }
+
+        // Cancel stops the compiler, or the compile process, too.
+        List<String> filesBefore = FileUtil.listFiles(folder);
+        compileLog = new ArrayList<String>();
+        boolean bSuccess = !bCancelled && build(testCaseNames[0].getName(), folder) && !bCancelled;
+        // Failures are not kept, they may come from the environment rather than the code.
+        if (key != null && bSuccess)
+            cache.store(key, folder, filesBefore, compileLog);
+        compileLog = null;
+
+        setBuildFolder(folder);
+        return bSuccess;
+    }
+
+    /**
+     * The files in the build folder a compile depends on: the source code
+     * and everything else that does not belong to the test cases, so
+     * editing a test case or its result does not compile everyone again.
+     * Source files named by a test case are compiled all the same.
+     */
+    private File[] listCompileInputs(File folder) throws IOException {
+        final DependencyTracker tracker = DependencyTracker.get(new File(getAssignmentFolderName()));
+        File[] files = folder.listFiles(new FileFilter() {
+            public boolean accept(File f) {
+                return isSourceCodeFile(f.getName()) || !tracker.belongsToTestCases(f.getName());
+            }
+        });
+        if (files == null)
+            throw new IOException("Cannot list " + folder);
+        return files;
+    }
+
+    // The first line of a test case names the program, which is all of it the compile uses.
+    private static String readFirstLine(File testCase) throws IOException {
+        List<String> lines = Files.readAllLines(testCase.toPath(), StandardCharsets.UTF_8);
+        return lines.isEmpty() ? "" : lines.get(0);
+    }
+
+    private void setBuildFolder(File folder) {
+        // Everything in the folder that does not belong to a test case decides what every test run does.
+        final DependencyTracker tracker = DependencyTracker.get(new File(getAssignmentFolderName()));
+        File[] files = folder.listFiles(new FileFilter() {
+            public boolean accept(File f) {
+                return !tracker.belongsToTestCases(f.getName());
+            }
+        });
+        try {
+            programHash = files == null ? null : FileUtil.hashFiles(files, "");
+        } catch (IOException e) {
+            programHash = null;
+        }
+        bWorkerSafe = language == Language.Java && isWorkerSafe(folder);
+        buildFolder = folder;
+    }
+
+    /**
+     * Can a worker run the compiled program in the folder? The worker runs
+     * it in a JVM that is used again, so it must not have a GUI, start
+     * threads that may outlive it, end the JVM through Runtime, or open
+     * files, which the worker would look for in its own folder.
+     */
+    private static boolean isWorkerSafe(File folder) {
+        File[] files = folder.listFiles();
+        if (files == null)
+            return false;
+
+        for (File f : files) {
+            if (f.isDirectory()) {
+                if (!isWorkerSafe(f))
+                    return false;
+                continue;
+            }
+            if (!f.getName().endsWith(".class"))
+                continue;
+
+            try {
+                ClassFile classFile = new ClassFile(Files.readAllBytes(f.toPath()));
+                for (String name : classFile.getClassNames()) {
+                    // Array types, like "[Ljava/io/File;".
+                    name = name.replaceFirst("^\\[+L", "");
+                    for (String prefix : WORKER_UNSAFE_CLASS_PREFIXES)
+                        if (name.startsWith(prefix))
+                            return false;
+                }
+                for (String[] ref : classFile.getMethodRefs())
+                    if (ref[1].equals("<init>") && ref[2].startsWith("(Ljava/lang/String;") && Arrays.asList(FILE_NAME_CLASSES).contains(ref[0]))
+                        return false;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Compile the files in the folder according to the command defined in the test case.
+    private boolean build(String testCaseName, File folder) {
+        // Java is compiled inside the tool when the compiler is there.
+        if (language == Language.Java && CompilationService.isAvailable())
+            return compileJava(testCaseName, folder);
+
+        boolean bSuccess = false;
+        String[] lines = null;
+
+        try {
+            TestResult result = runTest(testCaseName, true, folder, null);
+            if (result != null) {
+                lines = result.getLines();
+                bSuccess = true;
+            }
+        }
+        catch(Exception ee) {
+            log("Exception during compiling:");
+            log(ee.toString());
+        }
+
+        if (language == Language.Java) {
+            // Ignore certain warnings
+            if (lines != null && lines.length > 0 && lines[0].length() > 0) {
+                for (String line : lines) {
+                    log(line);
+                    if (!line.startsWith("Note:")) {
+                        bSuccess = false;
+                        break;
+                    }
+                }
+            }
+        }
+        else if (language == Language.C) {
+            if (!new File(folder, getCExecutableName()).exists())
+                bSuccess = false;
+        }
+
+        return bSuccess;
+    }
+
+    // Everything besides the files that decides what compile() produces.
+    private String getCompilerDescription() {
+        String description = language + " " + courseID + " A" + assignmentNum + " ";
+        if (language == Language.Java && CompilationService.isAvailable())
+            return description + "javax.tools " + System.getProperty("java.version");
+        else if (language == Language.Java)
+            return description + "javac -d . @" + JAVA_SOURCES_FILE_NAME + " " + getToolVersion("javac", "-version");
+        else
+            return description + "gcc -Wall -ansi -pedantic " + getCExecutableName() + " " + getToolVersion("gcc", "--version");
+    }
+
+    // The first line a compiler prints about its version, empty if it cannot be run.
+    private static synchronized String getToolVersion(String... command) {
+        String version = toolVersions.get(command[0]);
+        if (version == null) {
+            version = "";
+            try {
+                Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+                List<String> lines = readLines(process.getInputStream());
+                process.waitFor();
+                if (!lines.isEmpty())
+                    version = lines.get(0);
+            } catch (Exception e) {}
+            toolVersions.put(command[0], version);
+        }
+        return version;
+    }
+
+    // Compile the files listed in the "sources" file with the CompilationService.
+    private boolean compileJava(String testCaseName, File workFolder) {
+        try {
+            List<String> arguments = new ArrayList<String>();
+            for (String line : Files.readAllLines(new File(workFolder, JAVA_SOURCES_FILE_NAME).toPath(), StandardCharsets.UTF_8))
+                for (String argument : line.trim().split("\\s+"))
+                    if (argument.length() > 0)
+                        arguments.add(argument);
+
+            CompilationService.Result result = CompilationService.compile(workFolder, arguments, new BooleanSupplier() {
+                public boolean getAsBoolean() {
+                    return bCancelled;
+                }
+            });
+            for (String line : result.toLines())
+                log(line);
+            if (!result.isClean())
+                return false;
+
+            // Make sure the main class was really created.
+            String executableName = FileUtil.readFile(workFolder + File.separator + testCaseName).get(0).split(" ")[0];
+            if (!new File(workFolder, executableName + ".class").exists()) {
+                log("Verification failed: Cannot find the compiled file.");
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            log("Exception during compiling:");
+            log(e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Run a test case on a program that was compiled by compile().
+     *
+     * @return The output of the test run, or null if the test could not be started.
+     */
+    TestResult runTest(String testCaseName) {
+        return runTest(testCaseName, null);
+    }
+
+    /**
+     * Run a test case, and pass every line of the result to the listener as
+     * soon as it is known.
+     *
+     * @param listener Can be null.
+     */
+    TestResult runTest(String testCaseName, TestResult.LineListener listener) {
+        bCancelled = false;
+        File build = buildFolder;
+        if (build == null) {
+            log("Compile first.");
+            return null;
+        }
+
+        // A stored result is good if nothing it depends on has changed.
+        ResultStore store = createResultStore();
+        ResultStore.Key key = getResultKey(testCaseName, getRunMode(testCaseName, canUseWorkers()));
+        if (key != null) {
+            TestResult stored = store.lookup(student, testCaseName, key);
+            if (stored != null) {
+                log("Using the stored result of an earlier run.");
+                if (listener != null)
+                    for (String line : stored.getLines())
+                        listener.lineAdded(line);
+                return stored;
+            }
+        }
+
+        File folder = null;
+        try {
+            folder = workspaces.acquireCopy(student, testCaseName, build);
+            TestResult result = runTest(testCaseName, false, folder, listener);
+            if (result != null && bCancelled) {
+                result.addLine("*** Cancelled ***");
+                result.setVerdict(TestResult.Verdict.Error);
+                return result;
+            }
+
+            // The test may have run in another way than expected, if the workers were not available.
+            key = getResultKey(testCaseName, result == null ? null : result.getRunMode());
+            if (key != null && isRepeatable(result))
+                store.store(student, testCaseName, key, result);
+            return result;
+        } catch (IOException e) {
+            log("Error: " + e.getMessage());
+            return null;
+        } finally {
+            workspaces.release(folder);
+        }
+    }
+
+    /**
+     * Stop the test that is being run, with everything it has started. The
+     * test returns what it has collected so far.
+     */
+    void cancel() {
+        bCancelled = true;
+        destroyProcessTree(runningProcess.get());
+    }
+
+    static void destroyProcessTree(Process process) {
+        if (process == null)
+            return;
+
+        // Children first, they would not be our descendants any more once their parent is gone.
+        Iterator<ProcessHandle> it = process.descendants().iterator();
+        while (it.hasNext())
+            it.next().destroyForcibly();
+        process.destroyForcibly();
+    }
+
+    // The results of this assignment, kept in the folder of the WorkspaceManager.
+    ResultStore createResultStore() {
+        return new ResultStore(new File(workspaces.getRoot(), ResultStore.FOLDER_NAME + File.separator + getAssignmentFolderName()));
+    }
+
+    /**
+     * Would the test give the same result if it was run again? Not if it
+     * was stopped for the time or the CPU time it took, which depend on how
+     * busy the machine was, or for its output, which it may print at
+     * another speed, nor if the timestamps of the input and output lines
+     * could not be matched.
+     */
+    private static boolean isRepeatable(TestResult result) {
+        switch (result.getVerdict()) {
+            case TimeLimit:
+            case CpuLimit:
+            case OutputLimit:
+                return false;
+            default:
+                return !Arrays.asList(result.getLines()).contains(CODE_TESTER_TIMESTAMP_FAILURE);
+        }
+    }
+
+    // What the result of a test run depends on, null if that is not known.
+    private ResultStore.Key getResultKey(String testCaseName, String mode) {
+        String hash = programHash;
+        if (hash == null || student == null || mode == null)
+            return null;
+
+        DependencyTracker tracker = DependencyTracker.get(new File(getAssignmentFolderName()));
+        try {
+            // A program that was stopped would be stopped elsewhere with other limits.
+            String limits = ProcessWatchdog.describeLimits() + " " + StreamingVerifier.describeLimits();
+
+            // The workers are in the folder of the accurate CodeTester.
+            String testerFolder = mode.startsWith(CODE_TESTER_FAST_FOLDER_NAME) ? CODE_TESTER_FAST_FOLDER_NAME : CODE_TESTER_ACCURATE_FOLDER_NAME;
+            return new ResultStore.Key(hash, tracker.hashTestCase(testCaseName), tracker.hashResultFiles(testCaseName),
+                mode + " " + limits + " " + getTesterHash(testerFolder));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A hash of the class files of a CodeTester folder and of our classes
+     * that compare the output, so a result is not used any more once any
+     * of them has changed. It is made once while the tool runs.
+     */
+    private static synchronized String getTesterHash(String testerFolderName) throws IOException {
+        String hash = testerHashes.get(testerFolderName);
+        if (hash == null) {
+            List<File> files = new ArrayList<File>();
+            File[] testerFiles = new File(testerFolderName).listFiles();
+            if (testerFiles != null)
+                for (File f : testerFiles)
+                    if (f.getName().endsWith(".class"))
+                        files.add(f);
+            for (String name : RESULT_CLASS_NAMES)
+                files.add(new File(name + ".class"));
+
+            hash = FileUtil.hashFiles(files.toArray(new File[files.size()]), testerFolderName);
+            testerHashes.put(testerFolderName, hash);
+        }
+        return hash;
+    }
+
+    // How a test case is run: in a worker, or by which CodeTester with which option.
+    private String getRunMode(String testCaseName, boolean bWorker) {
+        if (language == Language.Java && bWorker)
+            return RUN_MODE_WORKER;
+
+        boolean bResultFile = new File(getAssignmentFolderName(), testCaseName + TEST_CASE_RESULT_FILE_NAME_SUFFIX).exists();
+        if (language == Language.Java)
+            return bResultFile ? CODE_TESTER_ACCURATE_FOLDER_NAME + " " + CODE_TESTER_AGENT_OPTION : CODE_TESTER_FAST_FOLDER_NAME;
+        else if (!m_bWindows && !isInputFromFile())
+            return CODE_TESTER_ACCURATE_FOLDER_NAME + " " + CODE_TESTER_PROC_OPTION;
+        else if (!m_bWindows)
+            return CODE_TESTER_ACCURATE_FOLDER_NAME;
+        else
+            return bResultFile ? CODE_TESTER_ACCURATE_FOLDER_NAME + " " + CODE_TESTER_EXPECT_OPTION : CODE_TESTER_ACCURATE_FOLDER_NAME;
+    }
+
+    // Programs that read their input from "tempinput" instead of stdin, see CSCI2240_A3_UseAlternateInputFile.
+    private boolean isInputFromFile() {
+        return courseID == 2240 && assignmentNum == 3;
+    }
+
+    private void copyToWorkFolder(File[] sourceFiles, File workFolder) {
+        try {
+            // Copy source code files from user folder to the working folder
+            for (File f : sourceFiles)
+                Files.copy(Paths.get(f.getAbsolutePath()), Paths.get(workFolder.getAbsolutePath() + File.separator + f.getName()), REPLACE_EXISTING);
+
+            // Copy everything in the assignment folder (except CommonIssues.txt) to the working folder.
+            {
+                File file = new File(getAssignmentFolderName());
+                for (File f: file.listFiles())
+                    if (f != null && !f.getName().equals(FILE_NAME_COMMON_ISSUES))
+                        Files.copy(Paths.get(f.getAbsolutePath()), Paths.get(workFolder.getAbsolutePath() + File.separator + f.getName()), REPLACE_EXISTING);
+            }
+
+            // javac reads the list of files to compile from a "sources" file. Unless
+            // the assignment provides one, list all the Java files we have copied.
+            if (language == Language.Java && !new File(workFolder, JAVA_SOURCES_FILE_NAME).exists()) {
+                List<String> javaFiles = new ArrayList<String>();
+                for (File f : workFolder.listFiles())
+                    if (f.getName().toLowerCase().endsWith(".java"))
+                        javaFiles.add(f.getName());
+                Files.write(Paths.get(workFolder.getAbsolutePath() + File.separator + JAVA_SOURCES_FILE_NAME), javaFiles, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            log("Error: " + e.getMessage());
+        }
+    }
+
+    // Workers open files relative to their own folder, so they can only run programs
+    // that do not read or write data files. Those come from the assignment folder.
+    // The program itself must be fit for a worker, too, see isWorkerSafe().
+    private boolean canUseWorkers() {
+        if (language != Language.Java || workers == null || !workers.isEnabled() || !bWorkerSafe)
+            return false;
+
+        File[] files = new File(getAssignmentFolderName()).listFiles();
+        if (files == null)
+            return false;
+
+        for (File f : files) {
+            String name = f.getName();
+            if (!Pattern.matches("TestCase\\d*(" + TEST_CASE_RESULT_FILE_NAME_SUFFIX + ")?", name) &&
+                !name.toLowerCase().endsWith(".java") && !name.endsWith(".class") &&
+                !name.equals(JAVA_SOURCES_FILE_NAME) && !name.equals(FILE_NAME_COMMON_ISSUES))
+                return false;
+        }
+        return true;
+    }
+
+    private void copyCodeTester(String codeTestFolderName, File workFolder)
+    {
+        File file = new File(codeTestFolderName);
+
+        try {
+            for (File f: file.listFiles())
+                if (f != null && f.getName().endsWith(".class"))
+                    Files.copy(Paths.get(f.getAbsolutePath()), Paths.get(workFolder.getAbsolutePath() + File.separator + f.getName()), REPLACE_EXISTING);
+        } catch (IOException e) {
+            log("Error: " + e.getMessage());
+        }
+    }
+
+    private TestResult runTest(String testCaseName, boolean bCompile, File workFolder, TestResult.LineListener listener) {
+        // Read test case
+        String testCaseFile = workFolder + File.separator + testCaseName;
+        String testResultFile = testCaseFile + TEST_CASE_RESULT_FILE_NAME_SUFFIX;
+
+        // Copy the correct CodeTester to the working folder.
+        boolean bAccurate = false;
+        if (language == Language.C || Files.exists(Paths.get(testResultFile))) {
+            log("Selecting accurate CodeTester.");
+            copyCodeTester(CODE_TESTER_ACCURATE_FOLDER_NAME, workFolder);
+            bAccurate = true;
+        }
+        else {
+            log("Selecting fast CodeTester.");
+            copyCodeTester(CODE_TESTER_FAST_FOLDER_NAME, workFolder);
+        }
+
+        // Read input lines from the test case file.
+        List<String> inputLines = FileUtil.readFile(testCaseFile);
+
+        // Get executable name and launching arguments
+        String[] sections = inputLines.get(0).split(" ");
+        String executableName = sections[0];
+
+        log("----------");
+        log("There are " + sections.length + " sections.");
+        for (int i = 0; i < sections.length; i++)
+            log("Section " + i + ": " + sections[i]);
+        log("----------");
+
+        // Setting the command to compile and run the program depending on the language.
+        Process process = null;
+        JavaWorkerPool.Run workerRun = null;
+        if (!bCompile && canUseWorkers())
+            workerRun = workers.start(workFolder, testCaseName, runningProcess);
+
+        if (workerRun != null) {
+            log("Running in a worker.");
+        }
+        else if (language == Language.Java) {
+            try {
+                ProcessBuilder pb = null;
+                if (bCompile) {
+                    pb = new ProcessBuilder("javac", "-d", ".", "@" + JAVA_SOURCES_FILE_NAME);
+                    //pb = new ProcessBuilder("javac", executableName + ".java");
+                }
+                else if (bAccurate) {
+                    // The accurate CodeTester feeds Java programs through its agent, without delays.
+                    pb = new ProcessBuilder("java", CODE_TESTER_CLASS_NAME, testCaseName, CODE_TESTER_AGENT_OPTION);
+                }
+                else {
+                    pb = new ProcessBuilder("java", CODE_TESTER_CLASS_NAME, testCaseName);
+                }
+                pb.directory(workFolder);
+                process = pb.start();
+            } catch (IOException e) {
+                log(e.toString());
+                return null;
+            }
+        }
+        else if (language == Language.C) {
+            if (bCompile) {
+                /////////////////////
+                // Code for specific assignments
+                if (courseID == 2240 && assignmentNum == 3)
+                    CSCI2240_A3_UseAlternateInputFile(executableName + ".c", workFolder);
+                if (courseID == 2240 && assignmentNum == 5)
+                    CSCI2240_A5_FixServerAddress(workFolder);
+            }
+            else {
+                if (courseID == 2240 && assignmentNum == 3)
+                    CSCI2240_A3_CreateTempInput(testCaseName, workFolder);
+            }
+
+            try {
+                ProcessBuilder pb = null;
+                if (bCompile)
+                    pb = new ProcessBuilder("gcc", "-Wall", "-ansi", "-pedantic", executableName + ".c");
+                else if (!m_bWindows && !isInputFromFile())
+                    // CodeTester watches C programs through /proc when it can, and falls back to timestamps otherwise.
+                    pb = new ProcessBuilder("java", CODE_TESTER_CLASS_NAME, testCaseName, CODE_TESTER_PROC_OPTION);
+                else if (!m_bWindows)
+                    // The program never reads stdin, so /proc cannot tell when it waits for input.
+                    pb = new ProcessBuilder("java", CODE_TESTER_CLASS_NAME, testCaseName);
+                else if (Files.exists(Paths.get(testResultFile)))
+                    // Without /proc, the prompts in the result file tell when to feed the next input line.
+                    pb = new ProcessBuilder("java", CODE_TESTER_CLASS_NAME, testCaseName, CODE_TESTER_EXPECT_OPTION);
+                else
+                    pb = new ProcessBuilder("java", CODE_TESTER_CLASS_NAME, testCaseName);
+                pb.directory(workFolder);
+                process = pb.start();
+            } catch (IOException e) {
+                log(e.toString());
+                return null;
+            }
+        }
+        else {
+            log("This programming language is not supported yet.");
+            return null;
+        }
+
+        if (process == null && workerRun == null) {
+            log("Failed to start process");
+            return null;
+        }
+        else if (process != null) {
+            log("Process started: " + process.toString());
+        }
+
+        ProcessWatchdog watchdog = null;
+        if (process != null) {
+            runningProcess.set(process);
+            // A test runs the program in a child of CodeTester, a compile runs the compiler itself.
+            watchdog = new ProcessWatchdog(process, bCompile);
+            watchdog.start();
+        }
+        if (bCancelled)
+            destroyProcessTree(runningProcess.get());
+        TestResult result;
+        try {
+            result = collectResult(testCaseName, bCompile, workFolder, listener, process, watchdog, workerRun, sections, executableName, testResultFile);
+        } finally {
+            if (watchdog != null)
+                watchdog.finish();
+            if (workerRun != null)
+                workerRun.finish();
+            runningProcess.set(null);
+        }
+
+        // A limit the program went over is the verdict, whatever its output was.
+        TestResult.Verdict stopVerdict = null;
+        String stopReason = null;
+        if (watchdog != null) {
+            stopVerdict = watchdog.getVerdict();
+            stopReason = watchdog.getReason();
+        }
+        else if (workerRun != null) {
+            stopVerdict = workerRun.stopVerdict;
+            stopReason = workerRun.stopReason;
+        }
+        if (stopVerdict != null) {
+            result.addLine("*** Stopped: " + stopReason + " ***");
+            result.setVerdict(stopVerdict);
+        }
+        return result;
+    }
+
+    private TestResult collectResult(String testCaseName, boolean bCompile, File workFolder, TestResult.LineListener listener,
+                                     Process process, ProcessWatchdog watchdog, JavaWorkerPool.Run workerRun,
+                                     String[] sections, String executableName, String testResultFile) {
+        TestResult result = new TestResult();
+        result.setListener(listener);
+        result.setRunMode(getRunMode(testCaseName, workerRun != null));
+        if (bCompile) {
+            // See if there is any error output from the compiler, we want none.
+            Scanner scanner = new Scanner(new InputStreamReader(watchdog.watch(process.getErrorStream())));
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+
+                // Bug fix: The following output lines were considered normal:
+                if (line.equals("Picked up JAVA_TOOL_OPTIONS: -javaagent:/usr/share/java/jayatanaag.jar "))
+                    continue;
+
+                result.addLine(line);
+            }
+
+            // If there is no output from the compiler, we still need to verify if the output file was really created.
+            if (result.getLines().length == 0) {
+                //if (language == Language.Java)
+                File file = new File(workFolder, executableName + ".class");
+                if (language == Language.C)
+                    file = new File(workFolder, getCExecutableName());
+
+                if (!file.exists())
+                    result.addLine("Verification failed: Cannot find the compiled file.");
+            }
+
+            scanner.close();
+        }
+        else {
+            // The output is shown as it comes, from a process or from a worker.
+            Scanner scanner;
+            if (workerRun != null)
+                scanner = new Scanner(workerRun);
+            else
+                scanner = new Scanner(new InputStreamReader(watchdog.watch(process.getInputStream())));
+
+            // Collect all the output.
+
+            result.addLine("===============================");
+            result.addLine("Output:");
+            result.addLine("-------------------------------");
+
+            // Compare while the program runs, so it can be stopped once it has clearly failed.
+            StreamingVerifier verifier = null;
+            if (!(courseID == 2240 && assignmentNum == 4) && Files.exists(Paths.get(testResultFile)))
+                verifier = new StreamingVerifier(FileUtil.readFile(testResultFile));
+
+            List<String> lines = new ArrayList<String>();
+            List<String> outputLines = new ArrayList<String>();
+            boolean bResultSection = true;
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                lines.add(line);
+                result.addLine(line);
+
+                // Ignore match check done by the CodeTester
+                if (line.startsWith("==========================="))
+                    bResultSection = false;
+
+                if (bResultSection) {
+                    outputLines.add(line);
+                    if (verifier != null && !verifier.lineAdded(line)) {
+                        // A worker stops the program itself and is used again.
+                        if (workerRun != null)
+                            workerRun.stop();
+                        else
+                            destroyProcessTree(runningProcess.get());
+                        result.addLine("*** Stopped: " + verifier.getStopReason() + " ***");
+                        break;
+                    }
+                }
+            }
+
+            // Compare result to a pre-defined result file
+
+            /////////////////////
+            // Code for specific assignments
+            if (courseID == 1620 && assignmentNum == 3) {
+                CSCI1620_A3_VerifyMaze(lines);
+                result.addLines(verifyOutput(outputLines, testResultFile, result));
+            }
+            else if (courseID == 2240 && assignmentNum == 4) {
+                // For this assignment we need to verify two output files.
+                String outputFile = workFolder + File.separator + sections[2] + ".out";
+                String outputFile_Expected = testResultFile + ".out";
+                result.addLines(verifyOutput(outputFile, outputFile_Expected, result));
+
+                String wordsFile = workFolder + File.separator + sections[2] + ".words";
+                String wordsFile_Expected = testResultFile + ".words";
+                result.addLines(verifyOutput(wordsFile, wordsFile_Expected, result));
+            }
+            else { // Compare with the result file
+                result.addLines(verifyOutput(outputLines, testResultFile, result));
+            }
+
+            scanner.close();
+            List<String> processErrorLines;
+            if (workerRun != null) {
+                workerRun.finish();
+                processErrorLines = workerRun.errorLines;
+            }
+            else {
+                processErrorLines = readLines(watchdog.watch(process.getErrorStream()));
+            }
+
+            // Add error output
+            boolean bTitle = false;
+            for (String line : processErrorLines) {
+                if (!bTitle) {
+                    result.addLine("===============================");
+                    result.addLine("Error output:");
+                    result.addLine("-------------------------------");
+                    bTitle = true;
+                }
+                result.addLine(line);
+            }
+        }
+
+        return result;
+    }
+
+    private static List<String> readLines(InputStream stream) {
+        List<String> lines = new ArrayList<String>();
+        Scanner scanner = new Scanner(new InputStreamReader(stream));
+        while (scanner.hasNextLine())
+            lines.add(scanner.nextLine());
+        scanner.close();
+        return lines;
+    }
+
+    private List<String> verifyOutput(String actualFile, String expectedFile, TestResult result) {
+        if (!Files.exists(Paths.get(actualFile))) {
+            List<String> tmpLines = new ArrayList<String>();
+            tmpLines.add("Cannot find file: " + Paths.get(actualFile).getFileName());
+            if (Files.exists(Paths.get(expectedFile)))
+                result.addComparison(false);
+            return tmpLines;
+        }
+
+        if (!Files.exists(Paths.get(expectedFile)))
+            return new ArrayList<String>();
+
+        // These files can be big, they are compared without reading them into lists of lines.
+        FileVerifier.Result comparison;
+        try {
+            comparison = FileVerifier.compare(new File(actualFile), new File(expectedFile));
+        } catch (IOException e) {
+            List<String> tmpLines = new ArrayList<String>();
+            tmpLines.add("Cannot compare file: " + Paths.get(actualFile).getFileName());
+            tmpLines.add(e.toString());
+            result.addComparison(false);
+            return tmpLines;
+        }
+
+        List<String> tmpLines = new ArrayList<String>();
+        tmpLines.add("===============================");
+        tmpLines.add("Compared to expected output: " + Paths.get(expectedFile).getFileName());
+        tmpLines.add("-------------------------------");
+
+        boolean error = addLengthMessages(tmpLines, comparison.actualLineCount, comparison.expectedLineCount);
+        if (!comparison.isSame()) {
+            List<LineDiff.Hunk> hunks = LineDiff.diff(comparison.expectedWindow, comparison.actualWindow);
+
+            // The end of a window that was cut short may not line up with the other one.
+            if (!hunks.isEmpty() && !(comparison.expectedWindowComplete && comparison.actualWindowComplete)) {
+                LineDiff.Hunk last = hunks.get(hunks.size() - 1);
+                if (last.expectedStart + last.expectedCount == comparison.expectedWindow.size()
+                        || last.actualStart + last.actualCount == comparison.actualWindow.size())
+                    hunks.remove(hunks.size() - 1);
+            }
+            if (!(comparison.expectedWindowComplete && comparison.actualWindowComplete)) {
+                tmpLines.add("Only the differences in the " + FileVerifier.WINDOW_SIZE + " lines from line "
+                    + (comparison.firstDifference + 1) + " on are shown.");
+                tmpLines.add("");
+            }
+
+            addMismatches(tmpLines, hunks, comparison.expectedWindow, comparison.actualWindow, comparison.firstDifference);
+            error = true;
+        }
+
+        if (!error) {
+            tmpLines.add("No error.");
+        }
+        tmpLines.add("===============================");
+
+        result.addComparison(!error);
+        return tmpLines;
+    }
+
+    private List<String> verifyOutput(List<String> lines, String expectedFile, TestResult result) {
+        if (!Files.exists(Paths.get(expectedFile)))
+            return new ArrayList<String>();
+
+        return verifyOutput(lines, FileUtil.readFile(expectedFile), result);
+    }
+
+    private List<String> verifyOutput(List<String> lines, List<String> expectedLines, TestResult result) {
+        List<String> tmpLines = new ArrayList<String>();
+
+        tmpLines.add("===============================");
+        tmpLines.add("Compared to expected output:");
+        tmpLines.add("-------------------------------");
+
+        boolean error = addLengthMessages(tmpLines, lines.size(), expectedLines.size());
+
+        // Report the lines that differ, aligned so that a missing or extra line only shows up once.
+        List<LineDiff.Hunk> hunks = LineDiff.diff(expectedLines, lines);
+        addMismatches(tmpLines, hunks, expectedLines, lines, 0);
+        if (!hunks.isEmpty())
+            error = true;
+
+        if (!error) {
+            tmpLines.add("No error.");
+        }
+        tmpLines.add("===============================");
+
+        result.addComparison(!error);
+        return tmpLines;
+    }
+
+    // A simple comparison of number of lines. Returns true if they are different.
+    private static boolean addLengthMessages(List<String> tmpLines, int lineCount, int expectedLineCount) {
+        boolean error = false;
+        if (lineCount > expectedLineCount) {
+            tmpLines.add("Output is longer than expected.");
+            tmpLines.add("expectedLines.size() = " + expectedLineCount);
+            tmpLines.add("outputLines.size() = " + lineCount);
+            error = true;
+        }
+        if (lineCount < expectedLineCount) {
+            tmpLines.add("Output is shorter than expected.");
+            tmpLines.add("expectedLines.size() = " + expectedLineCount);
+            tmpLines.add("outputLines.size() = " + lineCount);
+            error = true;
+        }
+        tmpLines.add("");
+        return error;
+    }
+
+    /**
+     * One "Mismatch" block per hunk.
+     *
+     * @param firstLine The line number (from 0) of the first line of both lists, they may be part of longer outputs.
+     */
+    private static void addMismatches(List<String> tmpLines, List<LineDiff.Hunk> hunks, List<String> expectedLines, List<String> lines, int firstLine) {
+        int mismatchCount = 0;
+        for (LineDiff.Hunk hunk : hunks) {
+            int start = firstLine + hunk.expectedStart;
+            mismatchCount++;
+            tmpLines.add("Mismatch " + mismatchCount + ":");
+            if (hunk.expectedCount == 0 && start == 0)
+                tmpLines.add("  Line     : extra output before line 1");
+            else if (hunk.expectedCount == 0)
+                tmpLines.add("  Line     : extra output after line " + start);
+            else if (hunk.expectedCount == 1)
+                tmpLines.add("  Line     : " + (start + 1));
+            else
+                tmpLines.add("  Lines    : " + (start + 1) + "-" + (start + hunk.expectedCount));
+            for (int i = 0; i < hunk.expectedCount; i++)
+                tmpLines.add("  Expected : " + expectedLines.get(hunk.expectedStart + i));
+            for (int i = 0; i < hunk.actualCount; i++)
+                tmpLines.add("  Actual   : " + lines.get(hunk.actualStart + i));
+            if (hunk.actualCount == 0)
+                tmpLines.add("  Actual   : (missing)");
+            tmpLines.add("");
+        }
+    }
+
+    // This is for CSCI-1620 A3(Maze) only
+    // This method checks if the number of 'X's is equal to the number of steps
+    // Returns false if maze is solved and steps don't match number of 'X's.
+    private boolean CSCI1620_A3_VerifyMaze(List<String> lines) {
+        String output = "";
+        for (String line : lines)
+            output += line;
+        //String output = outputTextArea.getText();
+
+        output = output.toLowerCase();
+
+        // Find if it is solved
+        if (output.indexOf("path") < 0)
+            return true;
+
+        int index1 = output.indexOf("solved");
+        if (index1 < 0)
+            return true;
+
+        String maze = output.substring(index1); // Roughly the solved maze
+        index1 = maze.indexOf("=====");
+        if (index1 > 0)
+            maze = maze.substring(0, index1);
+
+        char[] a = maze.toCharArray();
+
+        int count = 0;
+        for (char c : a) {
+            if (c == 'x' || c == 'X')
+                count++;
+        }
+
+        // Now get the count that was printed out.
+        int index2 = output.indexOf("took");
+        int index3 = output.indexOf("steps");
+
+        int steps = 0;
+        try {
+            steps = Integer.parseInt(output.substring(index2 + 4, index3).trim());
+        } catch (Exception e) {}
+
+        log("");
+        log("========================");
+        log("Verifying if(steps == number of 'x's)");
+        log("");
+
+        if (steps == count) {
+            log("Match!");
+            return true;
+        }
+        else {
+            log(String.format("No"));
+            log(String.format("Steps = %d", steps));
+            log(String.format("Number of 'X's = %d", count));
+            return false;
+        }
+    }
+
+    // This is for CSCI-2240 A5(client/server) only
+    // Some students hardcode loki as the address of the server. This
+    // method replaces it with localhost.
+    private void CSCI2240_A5_FixServerAddress(File workFolder) {
+        String clientFile = workFolder + File.separator + "client.c";
+
+        List<String> lines = FileUtil.readFile(clientFile);
+        if (lines == null || lines.size() == 0) {
+            log("CSCI2240_A5_FixServerAddress: Cannot find file \"client.c\"");
+            return;
+        }
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (!line.startsWith("/") && line.indexOf("gethostbyname") >= 0) {
+                line = line.substring(0, line.indexOf("gethostbyname")) + "gethostbyname(\"localhost\");";
+                lines.set(i, line);
+                log("CSCI2240_A5_FixServerAddress: updated line " + (i + 1) + " to: " + line);
+                break;
+            }
+        }
+
+        try {
+            Files.write(Paths.get(clientFile), lines, StandardCharsets.UTF_8);
+        }
+        catch (Exception e) {
+            log("CSCI2240_A5_FixServerAddress: Failed to write back to file.");
+        }
+    }
+
+    private void CSCI2240_A3_UseAlternateInputFile(String sourceCodeFileName, File workFolder) {
+        String fileFullPath = workFolder + File.separator + sourceCodeFileName;
+        List<String> lines = FileUtil.readFile(fileFullPath);
+        if (lines == null || lines.size() == 0) {
+            log("CSCI2240_A3_UseAlternateInputFile: Cannot find file: " + fileFullPath);
+            return;
+        }
+
+        int count = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (!line.startsWith("/") && line.indexOf("/dev/tty") >= 0) {
+                line = line.replace("/dev/tty", "tempinput");
+                lines.set(i, line);
+                log("CSCI2240_A3_UseAlternateInputFile: updated line " + (i + 1) + " to:");
+                log(line);
+                count++;
+            }
+        }
+
+        try {
+            Files.write(Paths.get(fileFullPath), lines, StandardCharsets.UTF_8);
+        }
+        catch (Exception e) {
+            log("CSCI2240_A3_UseAlternateInputFile: Failed to write back to file.");
+        }
+    }
+
+    private void CSCI2240_A3_CreateTempInput(String testCaseName, File workFolder) {
+        // Read test case
+        String testCaseFile = workFolder + File.separator + testCaseName;
+        String tempInputFile = workFolder + File.separator + "tempinput";
+        List<String> lines = FileUtil.readFile(testCaseFile);
+        if (lines == null || lines.size() == 0) {
+            log("CSCI2240_A3_CreateTempInput: Cannot find file: " + testCaseFile);
+            return;
+        }
+        if (lines.size() < 4) {
+            log("CSCI2240_A3_CreateTempInput: Testcase file does not contain user input lines: " + testCaseFile);
+            return;
+        }
+
+        lines.remove(0);
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line == null || line.length() == 0 || line.startsWith("/")) {
+                lines.remove(i);
+                i--;
+            }
+        }
+
+        try {
+            Files.write(Paths.get(tempInputFile), lines, StandardCharsets.UTF_8);
+            log("CSCI2240_A3_CreateTempInput: User input file for " + testCaseName + " was created.");
+        }
+        catch (Exception e) {
+            log("CSCI2240_A3_CreateTempInput: Failed to write back to file.");
+        }
+    }
+}
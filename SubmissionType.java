@@ -0,0 +1,2 @@
+// Late and second chance submissions are graded with a factor applied to the total.
+enum SubmissionType {Normal, SecondChance, Late};
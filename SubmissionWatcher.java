@@ -0,0 +1,143 @@
+import java.io.*;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the opened submission folder for students that show up, change
+ * or go away while grading, like late submissions that are copied in.
+ *
+ * The submission folder and every student folder in it are watched with a
+ * WatchService. Only the files the filter accepts count as a change of a
+ * student, so the feedback and the results written by the tool itself do
+ * not. Copying a submission makes many events, so the students
+ * they are about are collected until nothing happened for SETTLE_TIME_MS,
+ * then the listener is told once per student. The listener is called on
+ * the watcher's thread.
+ */
+class SubmissionWatcher {
+    private static final long SETTLE_TIME_MS = 1000;
+
+    interface Listener {
+        // A student folder was created, or was there but changed.
+        void studentChanged(File studentFolder, boolean bNew);
+
+        void studentRemoved(String student);
+    }
+
+    private final File submissionFolder;
+    private final FileFilter filter;
+    private final Listener listener;
+    private final WatchService service;
+
+    // The students that are known, only used by the watcher's thread.
+    private final Set<String> students = new TreeSet<String>();
+
+    /**
+     * @param filter The files of a student that count, like source code.
+     */
+    SubmissionWatcher(File submissionFolder, FileFilter filter, Listener listener) throws IOException {
+        this.submissionFolder = submissionFolder;
+        this.filter = filter;
+        this.listener = listener;
+        service = FileSystems.getDefault().newWatchService();
+
+        register(submissionFolder);
+        File[] folders = submissionFolder.listFiles();
+        if (folders != null) {
+            for (File f : folders) {
+                if (f.isDirectory()) {
+                    register(f);
+                    students.add(f.getName());
+                }
+            }
+        }
+
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                watch();
+            }
+        }, "SubmissionWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Stop watching, for example when another folder is opened.
+    void close() {
+        try {
+            service.close();
+        } catch (IOException e) {}
+    }
+
+    private void register(File folder) throws IOException {
+        folder.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    private void watch() {
+        Path root = submissionFolder.toPath();
+        Set<String> touched = new TreeSet<String>();
+        try {
+            while (true) {
+                // Wait for the first event, then until the events stop.
+                WatchKey key = touched.isEmpty() ? service.take() : service.poll(SETTLE_TIME_MS, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    report(touched);
+                    touched.clear();
+                    continue;
+                }
+
+                Path folder = (Path)key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Events were lost, look at every student.
+                        touched.addAll(students);
+                        String[] names = submissionFolder.list();
+                        if (names != null)
+                            for (String name : names)
+                                touched.add(name);
+                        continue;
+                    }
+
+                    Path path = folder.resolve((Path)event.context());
+                    if (folder.equals(root)) {
+                        // A student folder that came or went. It is modified by any file in it, which does not count.
+                        if (event.kind() != StandardWatchEventKinds.ENTRY_MODIFY)
+                            touched.add(path.getFileName().toString());
+                    }
+                    else if (filter.accept(path.toFile()))
+                        touched.add(folder.getFileName().toString()); // A file of a student
+                }
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+        } catch (ClosedWatchServiceException e) {
+        }
+    }
+
+    // Tell the listener what happened to each student.
+    private void report(Set<String> touched) {
+        for (String name : touched) {
+            File folder = new File(submissionFolder, name);
+            if (folder.isDirectory()) {
+                boolean bNew = students.add(name);
+                if (bNew) {
+                    try {
+                        register(folder);
+                    } catch (IOException e) {}
+                }
+                listener.studentChanged(folder, bNew);
+            }
+            else if (students.remove(name)) {
+                listener.studentRemoved(name);
+            }
+        }
+    }
+}
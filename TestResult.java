@@ -0,0 +1,78 @@
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * The outcome of running one test case: the lines to show to the grader
+ * and a verdict that can be summarized without reading them.
+ */
+class TestResult {
+    // The last three mean the program was stopped for going over a limit, see ProcessWatchdog.
+    enum Verdict {Passed, Failed, NotCompared, Error, TimeLimit, CpuLimit, OutputLimit};
+
+    // Told about every line as it is added, to show the output while the test runs.
+    interface LineListener {
+        void lineAdded(String line);
+    }
+
+    private final List<String> lines = new ArrayList<String>();
+    private Verdict verdict = Verdict.NotCompared;
+    private String runMode;
+    private boolean stored = false;
+    private LineListener listener;
+
+    void setListener(LineListener listener) {
+        this.listener = listener;
+    }
+
+    void addLine(String line) {
+        lines.add(line);
+        if (listener != null)
+            listener.lineAdded(line);
+    }
+
+    void addLines(List<String> lines) {
+        for (String line : lines)
+            addLine(line);
+    }
+
+    String[] getLines() {
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    Verdict getVerdict() {
+        return verdict;
+    }
+
+    void setVerdict(Verdict verdict) {
+        this.verdict = verdict;
+    }
+
+    // How the test was run, like "worker" or "CodeTester -proc".
+    String getRunMode() {
+        return runMode;
+    }
+
+    void setRunMode(String runMode) {
+        this.runMode = runMode;
+    }
+
+    // true if this result was kept from an earlier run, see ResultStore.
+    boolean isStored() {
+        return stored;
+    }
+
+    void setStored(boolean stored) {
+        this.stored = stored;
+    }
+
+    /**
+     * Record the result of one comparison with an expected output. A test
+     * case passes only if every comparison made for it passed.
+     */
+    void addComparison(boolean passed) {
+        if (!passed)
+            verdict = Verdict.Failed;
+        else if (verdict == Verdict.NotCompared)
+            verdict = Verdict.Passed;
+    }
+}
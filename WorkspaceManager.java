@@ -0,0 +1,160 @@
+import java.io.*;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out working folders, so that compiles and test runs never share a
+ * folder and can happen at the same time.
+ *
+ * All folders of one manager are inside a session folder under the root
+ * folder, for example "Temp/session-1234/jdoe/TestCase3-17". The number
+ * after the test case name makes every run unique. A folder is acquired
+ * before it is used and released when it is no longer needed. Released
+ * folders are deleted by a background thread, so nobody waits for the
+ * file system. Session folders left behind by tool instances that are no
+ * longer running are deleted in the background, too, and so is what is
+ * too old in the compile cache.
+ */
+class WorkspaceManager {
+    private static final String SESSION_FOLDER_PREFIX = "session-";
+    static final String BUILD_FOLDER_NAME = "build";
+
+    private final File root;
+    private final File sessionFolder;
+    private final Set<File> activeFolders = new HashSet<File>();
+    private final ExecutorService cleaner;
+    private long nextID = 0;
+
+    WorkspaceManager(File root) {
+        this.root = root.getAbsoluteFile();
+        this.sessionFolder = new File(this.root, SESSION_FOLDER_PREFIX + ProcessHandle.current().pid());
+        this.sessionFolder.mkdirs();
+
+        cleaner = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Workspace cleaner");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }
+        });
+
+        deleteStaleSessions();
+
+        // The compile cache outlives sessions, only what was not used for long is removed.
+        cleaner.execute(new Runnable() {
+            public void run() {
+                new CompileCache(new File(WorkspaceManager.this.root, CompileCache.FOLDER_NAME)).trim();
+            }
+        });
+    }
+
+    // Where the session folders are. Other things that outlive a session can go here, too.
+    File getRoot() {
+        return root;
+    }
+
+    File getSessionFolder() {
+        return sessionFolder;
+    }
+
+    /**
+     * Create a new empty folder for one student.
+     *
+     * @param student Name of the student's folder.
+     * @param purpose What the folder is for, like "build" or "TestCase3".
+     */
+    synchronized File acquire(String student, String purpose) {
+        File folder;
+        do {
+            folder = new File(sessionFolder, student + File.separator + purpose + "-" + nextID++);
+        } while (folder.exists());
+
+        folder.mkdirs();
+        activeFolders.add(folder);
+        return folder;
+    }
+
+    /**
+     * Create a new folder for running a test, with a copy of all the files
+     * in the given build folder, and the folders in it, like packages.
+     */
+    File acquireCopy(String student, String purpose, File buildFolder) throws IOException {
+        File folder = acquire(student, purpose);
+        if (buildFolder.isDirectory())
+            FileUtil.copyFolder(buildFolder, folder);
+        return folder;
+    }
+
+    /**
+     * The folder is no longer used. It will be deleted in the background.
+     */
+    void release(final File folder) {
+        if (folder == null)
+            return;
+
+        synchronized (this) {
+            if (!activeFolders.remove(folder))
+                return;
+        }
+
+        cleaner.execute(new Runnable() {
+            public void run() {
+                FileUtil.recursivelyDeleteFile(folder);
+                folder.delete();
+            }
+        });
+    }
+
+    /**
+     * Delete all the folders of this session. Waits for the background
+     * thread to finish.
+     */
+    void shutdown() {
+        synchronized (this) {
+            activeFolders.clear();
+        }
+        cleaner.execute(new Runnable() {
+            public void run() {
+                FileUtil.recursivelyDeleteFile(sessionFolder);
+                sessionFolder.delete();
+            }
+        });
+        cleaner.shutdown();
+        try {
+            cleaner.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {}
+    }
+
+    // Delete session folders whose tool instance is not running any more.
+    private void deleteStaleSessions() {
+        cleaner.execute(new Runnable() {
+            public void run() {
+                File[] sessions = root.listFiles();
+                if (sessions == null)
+                    return;
+
+                for (File f : sessions) {
+                    if (!f.isDirectory() || !f.getName().startsWith(SESSION_FOLDER_PREFIX) || f.equals(sessionFolder))
+                        continue;
+
+                    long pid;
+                    try {
+                        pid = Long.parseLong(f.getName().substring(SESSION_FOLDER_PREFIX.length()));
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+
+                    if (!ProcessHandle.of(pid).isPresent()) {
+                        FileUtil.recursivelyDeleteFile(f);
+                        f.delete();
+                    }
+                }
+            }
+        });
+    }
+}